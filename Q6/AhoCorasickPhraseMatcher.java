@@ -0,0 +1,373 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <p>A {@link PhraseMatcher} that compiles all of the redacted phrases into a single Aho-Corasick
+ * automaton, so that every match in an item of text is found in one pass, regardless of how many
+ * phrases there are.</p>
+ * <p>The automaton runs over a normalised form of the text, where characters are case-folded (if
+ * redacted phrases are matched case-insensitively) and each run of whitespace is collapsed into a
+ * single space. This mirrors the rules applied by {@link LinearPhraseMatcher}, where a space in a
+ * redacted phrase matches any run of whitespace in the text.</p>
+ */
+public class AhoCorasickPhraseMatcher implements PhraseMatcher {
+
+  // The root state of the automaton
+  private static final int ROOT = 0;
+
+  // Marks the absence of a state
+  private static final int NO_STATE = -1;
+
+  private final RedactionPlan plan;
+
+  // The phrase length (if any) that ends at each state, and the link to the next state along the
+  // failure chain that ends a phrase
+  private int[] phraseLengths = new int[16];
+  private int[] failures = new int[16];
+  private int[] outputLinks = new int[16];
+  private int[] parents = new int[16];
+  private char[] labels = new char[16];
+  private int[] depths = new int[16];
+  private int numberOfStates = 0;
+
+  // The transitions between states, stored as an open-addressing hash table keyed by the source
+  // state and the character
+  private long[] transitionKeys = new long[16];
+  private int[] transitionTargets = new int[16];
+  private int numberOfTransitions = 0;
+
+  private int longestPhraseLength = 0;
+
+  // Phrases that can't be represented in the automaton, as they contain whitespace other than a
+  // single space. These are few and far between, so are just tried one by one, longest first
+  private final List<String> irregularPhrases = new ArrayList<>();
+  private final LinearPhraseMatcher irregularPhraseMatcher;
+
+  /**
+   * Creates a new matcher, compiling the redacted phrases from the plan's configuration into an
+   * automaton. This is usually retrieved from {@link RedactionPlan#getAhoCorasickPhraseMatcher()}
+   * so that the automaton is only compiled once for each configuration.
+   * @param plan The plan for the configuration that specifies what phrases should be matched, and
+   * how.
+   * @throws NullPointerException Thrown if {@code plan == null}.
+   */
+  public AhoCorasickPhraseMatcher(RedactionPlan plan) throws NullPointerException {
+    this.plan = Objects.requireNonNull(plan, "Plan is null");
+
+    addState(ROOT, '\0', 0);
+    for (String redactedPhrase : plan.getConfiguration().getRedactedPhrases()) {
+      addPhrase(redactedPhrase);
+    }
+    buildFailureLinks();
+
+    this.irregularPhraseMatcher = plan.getLinearPhraseMatcher();
+  }
+
+  /**
+   * Adds a phrase to the trie that underpins the automaton.
+   * @param redactedPhrase The phrase to add.
+   */
+  private void addPhrase(String redactedPhrase) {
+    // An empty phrase never results in a redaction, so there's no need to match it
+    if (redactedPhrase.isEmpty()) {
+      return;
+    }
+
+    // Phrases are normalised so that whitespace is always a single space. Anything else has to be
+    // matched character for character, which the automaton can't do
+    for (int i = 0; i < redactedPhrase.length(); i++) {
+      char character = redactedPhrase.charAt(i);
+      if (character != ' ' && Character.isWhitespace(character)) {
+        irregularPhrases.add(redactedPhrase); // phrases arrive longest first, so order is kept
+        return;
+      }
+    }
+
+    // Walk down the trie, creating states as required
+    int state = ROOT;
+    for (int i = 0; i < redactedPhrase.length(); i++) {
+      char symbol = plan.foldCase(redactedPhrase.charAt(i));
+      int nextState = getTransition(state, symbol);
+      if (nextState == NO_STATE) {
+        nextState = addState(state, symbol, depths[state] + 1);
+        putTransition(state, symbol, nextState);
+      }
+      state = nextState;
+    }
+
+    phraseLengths[state] = redactedPhrase.length();
+    longestPhraseLength = Math.max(longestPhraseLength, redactedPhrase.length());
+  }
+
+  /**
+   * Adds a new state to the automaton.
+   * @param parent The parent of the state in the trie.
+   * @param label The character on the transition from the parent to this state.
+   * @param depth The depth of the state in the trie.
+   * @return The new state.
+   */
+  private int addState(int parent, char label, int depth) {
+    if (numberOfStates == phraseLengths.length) {
+      int newLength = numberOfStates * 2;
+      phraseLengths = Arrays.copyOf(phraseLengths, newLength);
+      failures = Arrays.copyOf(failures, newLength);
+      outputLinks = Arrays.copyOf(outputLinks, newLength);
+      parents = Arrays.copyOf(parents, newLength);
+      labels = Arrays.copyOf(labels, newLength);
+      depths = Arrays.copyOf(depths, newLength);
+    }
+    int state = numberOfStates++;
+    parents[state] = parent;
+    labels[state] = label;
+    depths[state] = depth;
+    outputLinks[state] = NO_STATE;
+    return state;
+  }
+
+  /**
+   * Sets the failure and output links of every state. States are visited in order of their depth,
+   * so that the failure links of shallower states are always available.
+   */
+  private void buildFailureLinks() {
+    // Counting sort the states by their depth
+    int[] statesPerDepth = new int[longestPhraseLength + 2];
+    for (int state = 0; state < numberOfStates; state++) {
+      statesPerDepth[depths[state] + 1]++;
+    }
+    for (int depth = 1; depth < statesPerDepth.length; depth++) {
+      statesPerDepth[depth] += statesPerDepth[depth - 1];
+    }
+    int[] statesByDepth = new int[numberOfStates];
+    for (int state = 0; state < numberOfStates; state++) {
+      statesByDepth[statesPerDepth[depths[state]]++] = state;
+    }
+
+    for (int state : statesByDepth) {
+      int parent = parents[state];
+      if (state == ROOT || parent == ROOT) {
+        failures[state] = ROOT;
+      } else {
+        // Follow the parent's failure chain until the label can be followed
+        failures[state] = step(failures[parent], labels[state]);
+      }
+
+      // The output link points to the nearest state along the failure chain that ends a phrase
+      int failure = failures[state];
+      if (state != ROOT) {
+        outputLinks[state] = phraseLengths[failure] > 0 ? failure : outputLinks[failure];
+      }
+    }
+  }
+
+  /**
+   * Moves the automaton from the given state on the given symbol, following failure links as
+   * required.
+   * @param state The current state.
+   * @param symbol The next (normalised) symbol in the text.
+   * @return The next state.
+   */
+  private int step(int state, char symbol) {
+    while (true) {
+      int nextState = getTransition(state, symbol);
+      if (nextState != NO_STATE) {
+        return nextState;
+      }
+      if (state == ROOT) {
+        return ROOT;
+      }
+      state = failures[state];
+    }
+  }
+
+  /**
+   * Gets the transition from the given state on the given symbol.
+   * @param state The source state.
+   * @param symbol The symbol.
+   * @return The target state, or {@link #NO_STATE} if there is no transition.
+   */
+  private int getTransition(int state, char symbol) {
+    long key = transitionKey(state, symbol);
+    int mask = transitionKeys.length - 1;
+    for (int slot = hash(key) & mask; transitionKeys[slot] != 0L; slot = (slot + 1) & mask) {
+      if (transitionKeys[slot] == key) {
+        return transitionTargets[slot];
+      }
+    }
+    return NO_STATE;
+  }
+
+  /**
+   * Adds a transition from the given state on the given symbol.
+   * @param state The source state.
+   * @param symbol The symbol.
+   * @param target The target state.
+   */
+  private void putTransition(int state, char symbol, int target) {
+    // Keep the load factor at or below a half
+    if ((numberOfTransitions + 1) * 2 > transitionKeys.length) {
+      long[] oldKeys = transitionKeys;
+      int[] oldTargets = transitionTargets;
+      transitionKeys = new long[oldKeys.length * 2];
+      transitionTargets = new int[oldKeys.length * 2];
+      for (int slot = 0; slot < oldKeys.length; slot++) {
+        if (oldKeys[slot] != 0L) {
+          insertTransition(oldKeys[slot], oldTargets[slot]);
+        }
+      }
+    }
+    insertTransition(transitionKey(state, symbol), target);
+    numberOfTransitions++;
+  }
+
+  // Inserts the key into the first free slot of the transition table
+  private void insertTransition(long key, int target) {
+    int mask = transitionKeys.length - 1;
+    int slot = hash(key) & mask;
+    while (transitionKeys[slot] != 0L) {
+      slot = (slot + 1) & mask;
+    }
+    transitionKeys[slot] = key;
+    transitionTargets[slot] = target;
+  }
+
+  // Zero marks an empty slot, so the key is offset by one
+  private static long transitionKey(int state, char symbol) {
+    return (((long) state << 16) | symbol) + 1L;
+  }
+
+  // Spreads the key across the table
+  private static int hash(long key) {
+    return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+  }
+
+  @Override
+  public Matches findMatches(CharSequence text) throws NullPointerException {
+    Objects.requireNonNull(text, "Text is null");
+
+    // The longest phrase length and the end index of the match for each start index
+    return findMatches(
+        text, new int[text.length()], new int[text.length()], new int[longestPhraseLength]
+    );
+  }
+
+  @Override
+  public Matches findMatches(CharSequence text, ScratchBuffers scratchBuffers)
+      throws NullPointerException {
+    Objects.requireNonNull(text, "Text is null");
+    Objects.requireNonNull(scratchBuffers, "Scratch buffers are null");
+
+    // The buffers may be longer than the text, but only the indices within the text are read
+    return findMatches(
+        text,
+        scratchBuffers.getMatchLengths(text.length()),
+        scratchBuffers.getMatchEndIndices(text.length()),
+        scratchBuffers.getSymbolStartIndices(longestPhraseLength)
+    );
+  }
+
+  /**
+   * Finds the redacted phrases in the given text, recording them in the given arrays.
+   * @param text The text to search.
+   * @param matchLengths The array to hold the length of the longest phrase that starts at each
+   * index. The elements for the indices within the text must be zero.
+   * @param matchEndIndices The array to hold the end index of the longest phrase that starts at
+   * each index.
+   * @param symbolStartIndices The array to hold the start indices of the most recent symbols,
+   * which must have at least {@code longestPhraseLength} elements.
+   * @return The matches that were found in the text.
+   */
+  private Matches findMatches(
+      CharSequence text, int[] matchLengths, int[] matchEndIndices, int[] symbolStartIndices
+  ) {
+    if (longestPhraseLength > 0) {
+      runAutomaton(text, matchLengths, matchEndIndices, symbolStartIndices);
+    }
+    return index -> getMatchEndIndex(text, index, matchLengths, matchEndIndices);
+  }
+
+  /**
+   * Runs the automaton over the text, recording the longest match that starts at each index.
+   * @param text The text.
+   * @param matchLengths Populated with the length of the longest phrase that starts at each index.
+   * @param matchEndIndices Populated with the end index (exclusive) of the longest phrase that
+   * starts at each index.
+   * @param symbolStartIndices Used to hold the text index at which each of the most recent symbols
+   * started, so that the start of a match can be found from the number of symbols in the phrase.
+   */
+  private void runAutomaton(
+      CharSequence text, int[] matchLengths, int[] matchEndIndices, int[] symbolStartIndices
+  ) {
+    int symbolCount = 0;
+    int state = ROOT;
+    int index = 0;
+
+    while (index < text.length()) {
+      int symbolStartIndex = index;
+      char character = text.charAt(index++);
+      char symbol;
+
+      // Collapse runs of whitespace into a single space
+      if (Character.isWhitespace(character)) {
+        symbol = ' ';
+        while (index < text.length() && Character.isWhitespace(text.charAt(index))) {
+          index++;
+        }
+      } else {
+        symbol = plan.foldCase(character);
+      }
+
+      symbolStartIndices[symbolCount % longestPhraseLength] = symbolStartIndex;
+      state = step(state, symbol);
+
+      // Record every phrase that ends with this symbol. Phrases never end in whitespace, so a match
+      // always ends immediately after this symbol's character
+      int matchEndIndex = symbolStartIndex + 1;
+      if (!plan.getConfiguration().isFullWordMatching()
+          || matchEndIndex >= text.length()
+          || plan.isWordSeparator(text.charAt(matchEndIndex))
+      ) {
+        int outputState = phraseLengths[state] > 0 ? state : outputLinks[state];
+        for (; outputState != NO_STATE; outputState = outputLinks[outputState]) {
+          int phraseLength = phraseLengths[outputState];
+          int matchStartIndex =
+              symbolStartIndices[(symbolCount - phraseLength + 1) % longestPhraseLength];
+          if (phraseLength > matchLengths[matchStartIndex]) {
+            matchLengths[matchStartIndex] = phraseLength;
+            matchEndIndices[matchStartIndex] = matchEndIndex;
+          }
+        }
+      }
+      symbolCount++;
+    }
+  }
+
+  /**
+   * Gets the end index of the longest phrase that starts at the given index.
+   * @param text The text.
+   * @param index The start index.
+   * @param matchLengths The length of the longest phrase found by the automaton at each index.
+   * @param matchEndIndices The end index of the longest phrase found by the automaton at each
+   * index.
+   * @return The end index (exclusive) of the match, or {@code -1} if no phrase starts at the index.
+   */
+  private int getMatchEndIndex(
+      CharSequence text, int index, int[] matchLengths, int[] matchEndIndices
+  ) {
+    int matchLength = matchLengths[index];
+
+    // Irregular phrases take priority if they're longer than the phrase found by the automaton
+    for (String irregularPhrase : irregularPhrases) {
+      if (irregularPhrase.length() <= matchLength) {
+        break;
+      }
+      int matchEndIndex = irregularPhraseMatcher.getMatchEndIndex(text, index, irregularPhrase);
+      if (matchEndIndex >= 0) {
+        return matchEndIndex;
+      }
+    }
+
+    return matchLength > 0 ? matchEndIndices[index] : -1;
+  }
+}
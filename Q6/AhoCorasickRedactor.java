@@ -0,0 +1,54 @@
+import java.util.Objects;
+
+/**
+ * A {@link Redactor} that finds redacted phrases using an Aho-Corasick automaton. The phrases are
+ * compiled once for each {@link RedactionPlan}, after which all of the phrases in an item of text
+ * are found in a single pass. This produces the same output as a {@link SimpleTextRedactor}
+ * created with the same {@link RedactionConfiguration}, but is much faster when there are many
+ * redacted phrases.
+ */
+public class AhoCorasickRedactor extends SimpleTextRedactor {
+
+  /**
+   * Creates a new redactor, compiling the redacted phrases into an automaton unless the plan for
+   * the configuration in {@link RedactionPlanCache#getDefault()} already has one.
+   * @param configuration The configuration that specifies what and how redactions should
+   * be found and replaced.
+   * @throws NullPointerException Thrown if {@code configuration == null}.
+   */
+  public AhoCorasickRedactor(RedactionConfiguration configuration) throws NullPointerException {
+    this(configuration, null);
+  }
+
+  /**
+   * Creates a new redactor, compiling the redacted phrases into an automaton unless the plan for
+   * the configuration in {@link RedactionPlanCache#getDefault()} already has one.
+   * @param configuration The configuration that specifies what and how redactions should
+   * be found and replaced.
+   * @param listener The listener that is notified of each redaction, or {@code null} if no
+   * listener is required.
+   * @throws NullPointerException Thrown if {@code configuration == null}.
+   */
+  public AhoCorasickRedactor(RedactionConfiguration configuration, RedactionListener listener)
+      throws NullPointerException {
+    this(RedactionPlanCache.getDefault().getPlan(configuration), listener);
+  }
+
+  /**
+   * Creates a new redactor, compiling the redacted phrases into an automaton unless the plan
+   * already has one.
+   * @param plan The plan for the configuration that specifies what and how redactions should be
+   * found and replaced.
+   * @param listener The listener that is notified of each redaction, or {@code null} if no
+   * listener is required.
+   * @throws NullPointerException Thrown if {@code plan == null}.
+   */
+  public AhoCorasickRedactor(RedactionPlan plan, RedactionListener listener)
+      throws NullPointerException {
+    super(
+        plan,
+        Objects.requireNonNull(plan, "Plan is null").getAhoCorasickPhraseMatcher(),
+        listener
+    );
+  }
+}
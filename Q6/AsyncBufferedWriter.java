@@ -0,0 +1,256 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p>A buffered writer that writes to the underlying writer on a dedicated thread, so that the
+ * thread producing the text doesn't wait for the disk.</p>
+ * <p>The text is written into one of a small ring of buffers. When that buffer is full, it's
+ * handed to the writer thread and the producer carries on with the next free buffer, while the
+ * writer thread writes out the full one and then returns it to the ring. With two buffers, this is
+ * plain double buffering. More buffers smooth out longer stalls in the underlying writer, such as
+ * on network volumes. The buffers are allocated once and reused, so no garbage is created.</p>
+ * <p>If the writer thread falls behind and every buffer is full, the producer has to wait for one
+ * to be freed. The total time spent waiting is recorded, and shows how much of the write latency
+ * hasn't been hidden.</p>
+ * <p>This class isn't thread safe. The text should only be written by one thread at a time.</p>
+ */
+public class AsyncBufferedWriter extends Writer {
+
+  // The default number of buffers in the ring
+  private static final int DEFAULT_NUMBER_OF_BUFFERS = 4;
+
+  // The default number of characters that each buffer holds
+  private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  // Marks the end of the output for the writer thread
+  private static final Buffer END_OF_OUTPUT = new Buffer(0);
+
+  private final Writer output;
+  private final int numberOfBuffers;
+  private final BlockingQueue<Buffer> freeBuffers;
+  private final BlockingQueue<Buffer> fullBuffers;
+  private final ExecutorService writer = Executors.newSingleThreadExecutor();
+  private final Future<Void> writerResult;
+  private Buffer currentBuffer;
+  private long producerWaitNanos = 0L;
+  private boolean closed = false;
+
+  /**
+   * Creates a new writer with 4 buffers of 64K characters each.
+   * @param output The writer that the text is written out to.
+   * @throws NullPointerException Thrown if {@code output == null}.
+   */
+  public AsyncBufferedWriter(Writer output) throws NullPointerException {
+    this(output, DEFAULT_NUMBER_OF_BUFFERS, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Creates a new writer.
+   * @param output The writer that the text is written out to.
+   * @param numberOfBuffers The number of buffers in the ring. One is filled by the producer while
+   * the others are written out or wait to be.
+   * @param bufferSize The number of characters that each buffer holds.
+   * @throws NullPointerException Thrown if {@code output == null}.
+   * @throws IllegalArgumentException Thrown if {@code numberOfBuffers < 2 || bufferSize < 1}.
+   */
+  public AsyncBufferedWriter(Writer output, int numberOfBuffers, int bufferSize)
+      throws NullPointerException, IllegalArgumentException {
+    if (numberOfBuffers < 2) {
+      throw new IllegalArgumentException("Number of buffers must be at least 2");
+    }
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("Buffer size must be at least 1");
+    }
+    this.output = Objects.requireNonNull(output, "Output is null");
+    this.numberOfBuffers = numberOfBuffers;
+    this.freeBuffers = new ArrayBlockingQueue<>(numberOfBuffers);
+    // There's room for the end of the output as well as every buffer, so handing off never blocks
+    this.fullBuffers = new ArrayBlockingQueue<>(numberOfBuffers + 1);
+
+    this.currentBuffer = new Buffer(bufferSize);
+    for (int i = 1; i < numberOfBuffers; i++) {
+      freeBuffers.add(new Buffer(bufferSize));
+    }
+    this.writerResult = writer.submit(this::writeBuffers);
+  }
+
+  /**
+   * Gets the total time that the producer has spent waiting for the writer thread to free a
+   * buffer, including while flushing and closing.
+   * @return The time spent waiting, in nanoseconds.
+   */
+  public long getProducerWaitNanos() {
+    return producerWaitNanos;
+  }
+
+  @Override
+  public void write(int character) throws IOException {
+    ensureOpen();
+    if (currentBuffer.isFull()) {
+      handOffCurrentBuffer();
+    }
+    currentBuffer.characters[currentBuffer.length++] = (char) character;
+  }
+
+  @Override
+  public void write(char[] characters, int offset, int length) throws IOException {
+    Objects.checkFromIndexSize(offset, length, characters.length);
+    ensureOpen();
+    while (length > 0) {
+      if (currentBuffer.isFull()) {
+        handOffCurrentBuffer();
+      }
+      int count = Math.min(length, currentBuffer.getRemaining());
+      System.arraycopy(
+          characters, offset, currentBuffer.characters, currentBuffer.length, count
+      );
+      currentBuffer.length += count;
+      offset += count;
+      length -= count;
+    }
+  }
+
+  @Override
+  public void write(String text, int offset, int length) throws IOException {
+    Objects.checkFromIndexSize(offset, length, text.length());
+    ensureOpen();
+    // Copy straight out of the string, rather than into a temporary array first
+    while (length > 0) {
+      if (currentBuffer.isFull()) {
+        handOffCurrentBuffer();
+      }
+      int count = Math.min(length, currentBuffer.getRemaining());
+      text.getChars(offset, offset + count, currentBuffer.characters, currentBuffer.length);
+      currentBuffer.length += count;
+      offset += count;
+      length -= count;
+    }
+  }
+
+  /**
+   * Writes out all of the text written so far, waiting for the writer thread to finish with it,
+   * and then flushes the underlying writer.
+   * @throws IOException Thrown if there is a problem writing the text.
+   */
+  @Override
+  public void flush() throws IOException {
+    ensureOpen();
+    if (currentBuffer.length > 0) {
+      handOffCurrentBuffer();
+    }
+
+    // Once every other buffer is free, the writer thread has nothing left to write
+    Buffer[] otherBuffers = new Buffer[numberOfBuffers - 1];
+    for (int i = 0; i < otherBuffers.length; i++) {
+      otherBuffers[i] = takeFreeBuffer();
+    }
+    output.flush();
+    for (Buffer buffer : otherBuffers) {
+      freeBuffers.add(buffer);
+    }
+  }
+
+  /**
+   * Writes out all of the text written so far, waiting for the writer thread to finish, and then
+   * closes the underlying writer.
+   * @throws IOException Thrown if there is a problem writing the text or closing the writer.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (currentBuffer.length > 0) {
+        fullBuffers.add(currentBuffer);
+      }
+      fullBuffers.add(END_OF_OUTPUT);
+      long startNanos = System.nanoTime();
+      WriterThreads.getResult(writerResult);
+      producerWaitNanos += System.nanoTime() - startNanos;
+    } finally {
+      writer.shutdownNow();
+      output.close();
+    }
+  }
+
+  // Checks that the writer hasn't been closed
+  private void ensureOpen() throws IOException {
+    if (closed) {
+      throw new IOException("Writer has been closed");
+    }
+  }
+
+  // Hands the current buffer to the writer thread and carries on with the next free buffer
+  private void handOffCurrentBuffer() throws IOException {
+    fullBuffers.add(currentBuffer);
+    currentBuffer = takeFreeBuffer();
+  }
+
+  /**
+   * Takes the next free buffer from the ring, waiting for the writer thread to free one if
+   * necessary.
+   * @return The buffer, which is empty.
+   * @throws IOException Thrown if the writer thread has failed, or the wait was interrupted.
+   */
+  private Buffer takeFreeBuffer() throws IOException {
+    Buffer buffer = freeBuffers.poll();
+    if (buffer != null) {
+      return buffer;
+    }
+
+    long startNanos = System.nanoTime();
+    try {
+      return WriterThreads.take(freeBuffers, writerResult);
+    } finally {
+      producerWaitNanos += System.nanoTime() - startNanos;
+    }
+  }
+
+  /**
+   * Writes out each of the full buffers in the order in which they were handed off, returning
+   * each to the ring once it's been written.
+   * @return Nothing.
+   * @throws IOException Thrown if there is a problem writing the text.
+   * @throws InterruptedException Thrown if the writer thread is interrupted.
+   */
+  private Void writeBuffers() throws IOException, InterruptedException {
+    Buffer buffer;
+    while ((buffer = fullBuffers.take()) != END_OF_OUTPUT) {
+      output.write(buffer.characters, 0, buffer.length);
+      buffer.length = 0;
+      freeBuffers.add(buffer);
+    }
+    return null;
+  }
+
+  /**
+   * One of the buffers in the ring, and the number of characters that have been written to it.
+   */
+  private static class Buffer {
+    private final char[] characters;
+    private int length = 0;
+
+    // Allocates the buffer's characters
+    private Buffer(int size) {
+      this.characters = new char[size];
+    }
+
+    // Checks whether there's no more room in the buffer
+    private boolean isFull() {
+      return length == characters.length;
+    }
+
+    // Gets the number of characters that can still be written to the buffer
+    private int getRemaining() {
+      return characters.length - length;
+    }
+  }
+}
@@ -0,0 +1,177 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>Redacts a batch of independent items of text, such as records or messages, in parallel. The
+ * items are split between the threads of a {@link ForkJoinPool}, and the results are returned in
+ * the same order as the items.</p>
+ * <p>All of the items are redacted with the same redactor, so the configuration is only compiled
+ * once. Each thread reuses the redactor's {@link ScratchBuffers} for that thread, so short items
+ * don't each allocate their own working space.</p>
+ * <p>This class is thread safe.</p>
+ */
+public class BatchRedactor {
+
+  // The number of items below which a task redacts its items itself rather than splitting them
+  private static final int ITEMS_PER_TASK = 64;
+
+  private final SimpleTextRedactor redactor;
+  private final ForkJoinPool pool;
+
+  /**
+   * Creates a new batch redactor that redacts items with an {@link AhoCorasickRedactor}, using the
+   * common pool.
+   * @param configuration The configuration that specifies what and how redactions should
+   * be found and replaced.
+   * @throws NullPointerException Thrown if {@code configuration == null}.
+   */
+  public BatchRedactor(RedactionConfiguration configuration) throws NullPointerException {
+    this(new AhoCorasickRedactor(configuration), ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Creates a new batch redactor.
+   * @param redactor The redactor used to redact each item. This must be safe to use from multiple
+   * threads.
+   * @param pool The pool whose threads redact the items.
+   * @throws NullPointerException Thrown if {@code redactor == null || pool == null}.
+   */
+  public BatchRedactor(SimpleTextRedactor redactor, ForkJoinPool pool)
+      throws NullPointerException {
+    this.redactor = Objects.requireNonNull(redactor, "Redactor is null");
+    this.pool = Objects.requireNonNull(pool, "Pool is null");
+  }
+
+  /**
+   * Redacts each of the items.
+   * @param texts The items to redact.
+   * @return The result, containing the redacted items in the same order.
+   * @throws NullPointerException Thrown if {@code texts == null}, or any of the items are {@code
+   * null}.
+   */
+  public Result redact(List<? extends CharSequence> texts) throws NullPointerException {
+    Objects.requireNonNull(texts, "Texts are null");
+    long startTime = System.nanoTime();
+
+    String[] redactedTexts = new String[texts.size()];
+    if (!texts.isEmpty()) {
+      pool.invoke(new RedactionTask(texts, redactedTexts, 0, texts.size()));
+    }
+
+    long numberOfCharacters = 0L;
+    for (CharSequence text : texts) {
+      numberOfCharacters += text.length();
+    }
+    return new Result(
+        Collections.unmodifiableList(Arrays.asList(redactedTexts)),
+        numberOfCharacters,
+        System.nanoTime() - startTime
+    );
+  }
+
+  /**
+   * Redacts each of the items in the stream. The whole stream is collected before any of the items
+   * are redacted, so that they can be split evenly between the threads.
+   * @param texts The items to redact.
+   * @return The result, containing the redacted items in the same order as the stream.
+   * @throws NullPointerException Thrown if {@code texts == null}, or any of the items are {@code
+   * null}.
+   */
+  public Result redact(Stream<? extends CharSequence> texts) throws NullPointerException {
+    Objects.requireNonNull(texts, "Texts are null");
+    return redact(texts.collect(Collectors.toList()));
+  }
+
+  /**
+   * Redacts a range of the items, splitting it in half until it's small enough for one thread.
+   */
+  private class RedactionTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final List<? extends CharSequence> texts;
+    private final String[] redactedTexts;
+    private final int startIndex;
+    private final int endIndex;
+
+    // Initialises the task with the range of items (start inclusive, end exclusive) to redact
+    private RedactionTask(
+        List<? extends CharSequence> texts, String[] redactedTexts, int startIndex, int endIndex
+    ) {
+      this.texts = texts;
+      this.redactedTexts = redactedTexts;
+      this.startIndex = startIndex;
+      this.endIndex = endIndex;
+    }
+
+    @Override
+    protected void compute() {
+      if (endIndex - startIndex > ITEMS_PER_TASK) {
+        int middleIndex = (startIndex + endIndex) >>> 1;
+        invokeAll(
+            new RedactionTask(texts, redactedTexts, startIndex, middleIndex),
+            new RedactionTask(texts, redactedTexts, middleIndex, endIndex)
+        );
+        return;
+      }
+
+      ScratchBuffers threadScratchBuffers = redactor.getScratchBuffers();
+      for (int i = startIndex; i < endIndex; i++) {
+        redactedTexts[i] = redactor.redact(texts.get(i), threadScratchBuffers);
+      }
+    }
+  }
+
+  /**
+   * The redacted items from a batch, and how long the batch took.
+   */
+  public static class Result {
+    private final List<String> redactedTexts;
+    private final long numberOfCharacters;
+    private final long elapsedNanos;
+
+    // Initialises the result with the redacted items and the stats for the batch
+    private Result(List<String> redactedTexts, long numberOfCharacters, long elapsedNanos) {
+      this.redactedTexts = redactedTexts;
+      this.numberOfCharacters = numberOfCharacters;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the redacted items, in the same order as the items that were redacted.
+     * @return The redacted items. This list can't be modified.
+     */
+    public List<String> getRedactedTexts() {
+      return redactedTexts;
+    }
+
+    /**
+     * Gets the total number of characters in the batch.
+     * @return The number of characters.
+     */
+    public long getNumberOfCharacters() {
+      return numberOfCharacters;
+    }
+
+    /**
+     * Gets how long it took to redact the batch.
+     * @return The elapsed time, in nanoseconds.
+     */
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    /**
+     * Gets the rate at which the batch was redacted.
+     * @return The number of characters redacted per second, or {@code 0} if no time elapsed.
+     */
+    public double getCharactersPerSecond() {
+      return elapsedNanos == 0L ? 0.0 : numberOfCharacters * 1e9 / elapsedNanos;
+    }
+  }
+}
@@ -3,9 +3,19 @@ import java.io.BufferedWriter;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  *  @author Anonymous (do not change)
@@ -48,6 +58,9 @@ import java.util.Set;
 
 public class CWK2Q6 {
 
+	// The number of paragraphs that are counted together when building a proper noun index
+	private static final int PARAGRAPHS_PER_INDEX_BATCH = 256;
+
 	/**
 	 * Applies the redaction, writing the results out to "result.txt".
 	 * @param textFilename The filename of the file that should be redacted.
@@ -55,8 +68,55 @@ public class CWK2Q6 {
 	 * be redacted.
 	 */
 	public static void redactWords(String textFilename, String redactedPhrasesFilename) {
+		redactWords(textFilename, redactedPhrasesFilename, RedactionJobOptions.builder().build());
+	}
+
+	/**
+	 * Applies the redaction, writing the results out to "result.txt".
+	 * @param textFilename The filename of the file that should be redacted.
+	 * @param redactedPhrasesFilename The filename of the file that contains the phrases that should
+	 * be redacted.
+	 * @param numberOfThreads The number of threads that should redact paragraphs. If this is 1 or
+	 * less, the redaction is performed on the calling thread.
+	 */
+	public static void redactWords(
+			String textFilename, String redactedPhrasesFilename, int numberOfThreads
+	) {
+		redactWords(
+				textFilename,
+				redactedPhrasesFilename,
+				RedactionJobOptions.builder().withNumberOfThreads(numberOfThreads).build()
+		);
+	}
+
+	/**
+	 * Applies the redaction, writing the results out to "result.txt". Rather than reading the input
+	 * file line by line, this memory-maps it and writes the results straight to the output file's
+	 * channel, so that very large files can be redacted without a growing heap.
+	 * @param textFilename The filename of the file that should be redacted.
+	 * @param redactedPhrasesFilename The filename of the file that contains the phrases that should
+	 * be redacted.
+	 */
+	public static void redactWordsMemoryMapped(String textFilename, String redactedPhrasesFilename) {
+		redactWords(
+				textFilename,
+				redactedPhrasesFilename,
+				RedactionJobOptions.builder().withMemoryMapping(true).build()
+		);
+	}
+
+	/**
+	 * Applies the redaction, writing the results out to "result.txt".
+	 * @param textFilename The filename of the file that should be redacted.
+	 * @param redactedPhrasesFilename The filename of the file that contains the phrases that should
+	 * be redacted.
+	 * @param options The options that control how the job is run.
+	 */
+	public static void redactWords(
+			String textFilename, String redactedPhrasesFilename, RedactionJobOptions options
+	) {
 		try {
-			redactWordsAndThrowExceptions(textFilename, redactedPhrasesFilename);
+			redactWordsAndThrowExceptions(textFilename, redactedPhrasesFilename, options);
 			System.out.println(System.lineSeparator() + "Redaction complete");
 		} catch (IOException e) {
 			System.err.println("Problem encountered reading from or writing to the result file");
@@ -65,19 +125,196 @@ public class CWK2Q6 {
 	}
 
 	/**
-	 * Attempts to apply the redaction, and write the results out to "result.txt".
+	 * Attempts to apply the redaction, and write the results out to "result.txt". If metrics are
+	 * enabled, a summary of them is written out to "metrics.json".
 	 * @param textFilename The filename of the file that should be redacted.
 	 * @param redactedPhrasesFilename The filename of the file that contains the phrases that should
-	 * be redacted.
+	 * be redacted, or a dictionary that has been compiled from them.
+	 * @param options The options that control how the job is run.
 	 * @throws IOException Thrown if there is problem accessing any of the files.
 	 */
 	private static void redactWordsAndThrowExceptions(
-			String textFilename, String redactedPhrasesFilename
+			String textFilename, String redactedPhrasesFilename, RedactionJobOptions options
+	) throws IOException {
+		RedactionMetrics metrics = options.isMetricsEnabled() ? new RedactionMetrics() : null;
+		SimpleTextRedactor textRedactor = buildRedactor(redactedPhrasesFilename, metrics);
+		if (options.isProperNounIndexing()) {
+			textRedactor = textRedactor.withProperNounIndex(buildProperNounIndex(
+					textFilename, textRedactor.getPlan(), options.getNumberOfThreads()
+			));
+		}
+
+		// Only wrap the redactor when metrics are enabled, so there's no overhead otherwise
+		Redactor redactor = metrics == null ? textRedactor : new MeteredRedactor(textRedactor, metrics);
+		writeRedactionToFile(textFilename, "result.txt", redactor, options, metrics);
+
+		if (metrics != null) {
+			Files.writeString(Paths.get("metrics.json"), metrics.toJson() + System.lineSeparator());
+		}
+	}
+
+	/**
+	 * Redacts every file in a directory tree, writing the results to the same relative paths under
+	 * the output directory. Large files are split into chunks, so that the threads stay busy however
+	 * the sizes of the files vary. Once the redaction is complete, the overall throughput is shown.
+	 * Each file is redacted on its own, so proper nouns can't be indexed across the whole tree.
+	 * @param inputDirectory The directory that should be redacted.
+	 * @param outputDirectory The directory that the results should be written to.
+	 * @param glob The glob that the relative paths of the redacted files must match, or {@code null}
+	 * to redact every file.
+	 * @param redactedPhrasesFilename The filename of the file that contains the phrases that should
+	 * be redacted, or a dictionary that has been compiled from them.
+	 * @param options The options that control how the job is run.
+	 */
+	public static void redactDirectory(
+			String inputDirectory,
+			String outputDirectory,
+			String glob,
+			String redactedPhrasesFilename,
+			RedactionJobOptions options
+	) {
+		Thread progressThread = null;
+		ForkJoinPool pool = new ForkJoinPool(options.getNumberOfThreads());
+		try {
+			RedactionMetrics metrics = options.isMetricsEnabled() ? new RedactionMetrics() : null;
+			SimpleTextRedactor textRedactor = buildRedactor(redactedPhrasesFilename, metrics);
+			Redactor redactor =
+					metrics == null ? textRedactor : new MeteredRedactor(textRedactor, metrics);
+
+			progressThread = startProgressThread(metrics);
+			DirectoryRedactor.Result result = new DirectoryRedactor(redactor, pool)
+					.redact(Paths.get(inputDirectory), Paths.get(outputDirectory), glob);
+			progressThread.interrupt();
+
+			if (metrics != null) {
+				Files.writeString(Paths.get("metrics.json"), metrics.toJson() + System.lineSeparator());
+			}
+			System.out.printf(
+					"%nRedacted %d files (%d bytes) in %d ms, at %.1f MB/s%n",
+					result.getNumberOfFiles(),
+					result.getNumberOfBytes(),
+					result.getElapsedNanos() / 1_000_000L,
+					result.getBytesPerSecond() / (1024.0 * 1024.0)
+			);
+		} catch (IOException e) {
+			System.err.println("Problem encountered reading from or writing to the directories");
+			e.printStackTrace();
+		} finally {
+			if (progressThread != null) {
+				progressThread.interrupt();
+			}
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Builds the redactor for this task. A dictionary that has already been compiled is loaded as it
+	 * is, which saves parsing and compiling the phrases again.
+	 * @param redactedPhrasesFilename The filename of the file that contains the phrases that should
+	 * be redacted, or a dictionary that has been compiled from them.
+	 * @param metrics The metrics that the redactions should be recorded in, or {@code null} if
+	 * metrics are disabled.
+	 * @return The redactor.
+	 * @throws IOException Thrown if there is a problem reading from the file.
+	 */
+	private static SimpleTextRedactor buildRedactor(
+			String redactedPhrasesFilename, RedactionMetrics metrics
+	) throws IOException {
+		Path redactedPhrasesFile = Paths.get(redactedPhrasesFilename);
+		if (CompactPhraseDictionary.isCompiledDictionary(redactedPhrasesFile)) {
+			return new CompactRedactor(CompactPhraseDictionary.load(redactedPhrasesFile), metrics);
+		}
+		return new AhoCorasickRedactor(
+				buildRedactionConfigurationFromFile(redactedPhrasesFilename), metrics
+		);
+	}
+
+	/**
+	 * Builds an index of how each word in the input file is capitalised, as the first pass of a two
+	 * pass redaction. The paragraphs are read in batches, and each batch is counted by the pool while
+	 * the next ones are read. Only a few batches are in flight at once, so the file isn't pulled into
+	 * memory.
+	 * @param textFilename The filename for the input file.
+	 * @param plan The plan for the configuration that the file will be redacted with.
+	 * @param numberOfThreads The number of threads that should count the words.
+	 * @return The index.
+	 * @throws IOException Thrown if there is a problem reading from the input file.
+	 */
+	private static ProperNounIndex buildProperNounIndex(
+			String textFilename, RedactionPlan plan, int numberOfThreads
 	) throws IOException {
-		RedactionConfiguration redactionConfiguration =
-				buildRedactionConfigurationFromFile(redactedPhrasesFilename);
-		Redactor redactor = new SimpleTextRedactor(redactionConfiguration);
-		writeRedactionToFile(textFilename, "result.txt", redactor);
+		ProperNounIndex index = new ProperNounIndex(plan);
+		ForkJoinPool pool = new ForkJoinPool(numberOfThreads);
+		Deque<ForkJoinTask<?>> batchesInFlight = new ArrayDeque<>();
+
+		try (BufferedReader textReader = new BufferedReader(new FileReader(textFilename))) {
+			List<String> batch = new ArrayList<>();
+
+			// Split the text into paragraphs in the same way as the redaction, so that sentences start
+			// in the same places
+			ParagraphReader paragraphReader = new ParagraphReader(textReader);
+			String paragraph;
+			while ((paragraph = paragraphReader.readParagraph()) != null) {
+				batch.add(paragraph);
+				if (batch.size() >= PARAGRAPHS_PER_INDEX_BATCH) {
+					submitIndexBatch(index, batch, pool, batchesInFlight, numberOfThreads);
+					batch = new ArrayList<>();
+				}
+			}
+			submitIndexBatch(index, batch, pool, batchesInFlight, numberOfThreads);
+
+			while (!batchesInFlight.isEmpty()) {
+				batchesInFlight.removeFirst().join();
+			}
+		} finally {
+			pool.shutdown();
+		}
+		return index;
+	}
+
+	/**
+	 * Submits a batch of paragraphs to be counted, first waiting for the oldest batch to finish if
+	 * there are already two batches per thread in flight.
+	 * @param index The index to count the paragraphs in.
+	 * @param batch The paragraphs.
+	 * @param pool The pool whose threads count the paragraphs.
+	 * @param batchesInFlight The batches that have been submitted, oldest first.
+	 * @param numberOfThreads The number of threads in the pool.
+	 */
+	private static void submitIndexBatch(
+			ProperNounIndex index,
+			List<String> batch,
+			ForkJoinPool pool,
+			Deque<ForkJoinTask<?>> batchesInFlight,
+			int numberOfThreads
+	) {
+		if (batchesInFlight.size() >= numberOfThreads * 2) {
+			batchesInFlight.removeFirst().join();
+		}
+		batchesInFlight.addLast(pool.submit(() -> batch.forEach(index::addText)));
+	}
+
+	/**
+	 * Compiles the redacted phrases into a dictionary file, which can be used in place of the
+	 * phrases to start up more quickly.
+	 * @param redactedPhrasesFilename The filename for the file that contains the redacted phrases.
+	 * @param dictionaryFilename The filename for the compiled dictionary.
+	 * @throws IOException Thrown if there is a problem reading from or writing to the files.
+	 */
+	static void compileDictionary(String redactedPhrasesFilename, String dictionaryFilename)
+			throws IOException {
+		long start = System.nanoTime();
+		CompactPhraseDictionary dictionary = new CompactPhraseDictionary(
+				buildRedactionConfigurationBuilderFromFile(redactedPhrasesFilename)
+		);
+		dictionary.write(Paths.get(dictionaryFilename));
+		System.out.printf(
+				"Compiled %d phrases into %s (%d bytes) in %d ms%n",
+				dictionary.getNumberOfPhrases(),
+				dictionaryFilename,
+				Files.size(Paths.get(dictionaryFilename)),
+				(System.nanoTime() - start) / 1_000_000L
+		);
 	}
 
 	/**
@@ -86,7 +323,19 @@ public class CWK2Q6 {
 	 * @return The appropriate redaction configuration.
 	 * @throws IOException Thrown if there is a problem reading from the redacted phrases file.
 	 */
-	private static RedactionConfiguration buildRedactionConfigurationFromFile(
+	static RedactionConfiguration buildRedactionConfigurationFromFile(
+			String redactedPhrasesFilename
+	) throws IOException {
+		return buildRedactionConfigurationBuilderFromFile(redactedPhrasesFilename).build();
+	}
+
+	/**
+	 * Creates a builder with the appropriate settings for this task.
+	 * @param redactedPhrasesFilename The filename for the file that contains the redacted phrases.
+	 * @return The builder, which has the redacted phrases and the settings for this task.
+	 * @throws IOException Thrown if there is a problem reading from the redacted phrases file.
+	 */
+	private static RedactionConfiguration.Builder buildRedactionConfigurationBuilderFromFile(
 			String redactedPhrasesFilename
 	) throws IOException {
 		return RedactionConfiguration
@@ -95,8 +344,7 @@ public class CWK2Q6 {
 				.withMatchRedactedWordCase(false)
 				.withFullWordMatching(true)
 				.withProperNounDetection(ProperNounDetection.CAPITALISED_EXCLUDING_START_OF_SENTENCES)
-				.withReplacementCharacter('*')
-				.build();
+				.withReplacementCharacter('*');
 	}
 
 	/**
@@ -105,7 +353,7 @@ public class CWK2Q6 {
 	 * @return The phrases that should be redacted.
 	 * @throws IOException Thrown if there is a problem reading from the redacted phrases file.
 	 */
-	private static Collection<String> getRedactedPhrases(String redactedPhrasesFilename)
+	static Collection<String> getRedactedPhrases(String redactedPhrasesFilename)
 			throws IOException {
 		try (BufferedReader reader = new BufferedReader(new FileReader(redactedPhrasesFilename))) {
 			return getRedactedPhrases(reader);
@@ -135,33 +383,112 @@ public class CWK2Q6 {
 	 * @param textFilename The filename for the input file.
 	 * @param outputFilename The filename for the output file.
 	 * @param redactor The instance that performs the redactions.
+	 * @param options The options that control how the job is run.
+	 * @param metrics The metrics for the job, or {@code null} if metrics are disabled.
 	 * @throws IOException Thrown if there is a problem writing to or reading from the files.
 	 */
 	private static void writeRedactionToFile(
-			String textFilename, String outputFilename, Redactor redactor
+			String textFilename,
+			String outputFilename,
+			Redactor redactor,
+			RedactionJobOptions options,
+			RedactionMetrics metrics
 	) throws IOException {
-		Thread spinnerThread = null;
+		Thread progressThread = null;
+
+		// The checkpointed redaction also opens the files itself, so that it can pick up where an
+		// earlier run left off
+		if (options.isCheckpointing()) {
+			try {
+				progressThread = startProgressThread(metrics);
+				long resumedFrom = new CheckpointedFileRedactor(redactor)
+						.redact(Paths.get(textFilename), Paths.get(outputFilename), options.isResuming());
+				if (resumedFrom > 0L) {
+					System.out.printf("%nResumed from byte %d of %s%n", resumedFrom, textFilename);
+				}
+			} finally {
+				progressThread.interrupt();
+			}
+			return;
+		}
+
+		// The memory-mapped redaction opens the files itself
+		if (options.isMemoryMapped()) {
+			try {
+				progressThread = startProgressThread(metrics);
+				new MappedFileRedactor(redactor)
+						.redact(Paths.get(textFilename), Paths.get(outputFilename));
+			} finally {
+				progressThread.interrupt();
+			}
+			return;
+		}
 
 		// Initialise the readers
 		try (
 				BufferedReader textReader = new BufferedReader(new FileReader(textFilename));
-				BufferedWriter outputWriter = new BufferedWriter(new FileWriter(outputFilename))
+				Writer outputWriter = openOutputWriter(outputFilename, options)
 		) {
 			// Looks like the files exist, so start a spinner so the user knows that the redaction is in
 			// progress...
-			Spinner spinner = new Spinner("Redacting contents from file. Please wait... ");
-			spinnerThread = new Thread(spinner);
-			spinnerThread.start();
+			progressThread = startProgressThread(metrics);
+
+			// Perform the redaction. Paragraphs are independent so, if there are threads to spare, they
+			// can be redacted in parallel
+			if (options.getNumberOfThreads() > 1) {
+				new ParagraphRedactionPipeline(redactor, options.getNumberOfThreads())
+						.run(textReader, outputWriter);
+			} else {
+				writeRedactionToFile(textReader, outputWriter, redactor);
+			}
 
-			// Perform the redaction
-			writeRedactionToFile(textReader, outputWriter, redactor);
+			// Finish writing out the text, so that all of the time spent waiting for it is counted
+			outputWriter.flush();
+			if (metrics != null && outputWriter instanceof AsyncBufferedWriter) {
+				metrics.outputWaited(((AsyncBufferedWriter) outputWriter).getProducerWaitNanos());
+			}
 		} finally {
-			if (spinnerThread != null) {
-				spinnerThread.interrupt();
+			if (progressThread != null) {
+				progressThread.interrupt();
 			}
 		}
 	}
 
+	/**
+	 * Opens the writer for the output file. If there are output buffers to spare, the text is written
+	 * out on a dedicated thread, so that the redaction doesn't wait for the disk.
+	 * @param outputFilename The filename for the output file.
+	 * @param options The options that control how the job is run.
+	 * @return The writer.
+	 * @throws IOException Thrown if the output file can't be opened.
+	 */
+	private static Writer openOutputWriter(String outputFilename, RedactionJobOptions options)
+			throws IOException {
+		if (options.getNumberOfOutputBuffers() > 1) {
+			return new AsyncBufferedWriter(
+					new FileWriter(outputFilename),
+					options.getNumberOfOutputBuffers(),
+					options.getOutputBufferSize()
+			);
+		}
+		return new BufferedWriter(new FileWriter(outputFilename));
+	}
+
+	/**
+	 * Starts a thread that shows the user that the redaction is in progress. If metrics are enabled,
+	 * the job's progress is shown. Otherwise, a spinner is shown.
+	 * @param metrics The metrics for the job, or {@code null} if metrics are disabled.
+	 * @return The thread, which should be interrupted once the redaction is complete.
+	 */
+	private static Thread startProgressThread(RedactionMetrics metrics) {
+		String prefix = "Redacting contents from file. Please wait... ";
+		Thread progressThread = new Thread(
+				metrics == null ? new Spinner(prefix) : new ProgressReporter(prefix, metrics)
+		);
+		progressThread.start();
+		return progressThread;
+	}
+
 	/**
 	 * Performs the redaction, reading the input file and writing out the results.
 	 * @param textReader The reader for the input file.
@@ -170,52 +497,88 @@ public class CWK2Q6 {
 	 * @throws IOException Thrown if there is a problem writing to or reading from the files.
 	 */
 	private static void writeRedactionToFile(
-			BufferedReader textReader, BufferedWriter outputWriter, Redactor redactor
+			BufferedReader textReader, Writer outputWriter, Redactor redactor
 	) throws IOException {
-		String line;
-
 		// With the example file being so large, we really want to avoid pulling the entire thing into
 		// memory at once. Unfortunately, processing the file line by line would cause issues as content
 		// will wrap over multiple lines, which would mess up things like sentence detection. As a
-		// compromise, text is processed paragraph by paragraph, where a paragraph is any body of text
-		// separated by a blank line
-
-		StringBuilder paragraphBuilder = null;
-
-		// Iteratively read every line
-		while ((line = textReader.readLine()) != null) {
-
-			// Check if the line is blank.
-			if (line.isBlank()) {
-
-				// Process the paragraph (if there is one before this empty line) and write out the results
-				if (paragraphBuilder != null) {
-					outputWriter.append(redactor.redact(paragraphBuilder.toString()));
-					paragraphBuilder = null;
-				}
-
-				// Write out this line as is. The line may have whitespace content so preserve it
-				outputWriter.append(line);
-				outputWriter.newLine();
+		// compromise, text is processed paragraph by paragraph
+		ParagraphReader paragraphReader = new ParagraphReader(textReader);
+		String text;
+		while ((text = paragraphReader.read()) != null) {
+			// Write out blank lines as they are. They may have whitespace content so preserve it
+			if (paragraphReader.isBlankLine()) {
+				outputWriter.write(text);
 			} else {
-				// It's not a new line. If we haven't started building a paragraph, start now
-				if (paragraphBuilder == null) {
-					paragraphBuilder = new StringBuilder();
-				}
-				// Add the line to the paragraph
-				paragraphBuilder.append(line).append(System.lineSeparator());
+				redactor.redact(text, outputWriter);
 			}
 		}
-
-		// If the text didn't end with a line break, make sure the final paragraph is written out
-		if (paragraphBuilder != null) {
-			outputWriter.append(redactor.redact(paragraphBuilder.toString()));
-		}
 	}
 
 	public static void main(String[] args) {
 		String inputFile = "./warandpeace.txt";
 		String redactFile = "./redact.txt";
-		redactWords(inputFile, redactFile);
+		String dictionaryFile = null;
+		String inputDirectory = null;
+		String outputDirectory = "./redacted";
+		String glob = null;
+		RedactionJobOptions.Builder options = RedactionJobOptions
+				.builder()
+				.withNumberOfThreads(Runtime.getRuntime().availableProcessors());
+
+		// Optional flags for larger jobs
+		for (String arg : args) {
+			if (arg.equals("--mmap")) {
+				options.withMemoryMapping(true);
+			} else if (arg.equals("--metrics")) {
+				options.withMetrics(true);
+			} else if (arg.equals("--checkpoint")) {
+				options.withCheckpointing(true);
+			} else if (arg.equals("--resume")) {
+				options.withResuming(true);
+			} else if (arg.equals("--index-proper-nouns")) {
+				options.withProperNounIndexing(true);
+			} else if (arg.startsWith("--threads=")) {
+				options.withNumberOfThreads(Integer.parseInt(arg.substring("--threads=".length())));
+			} else if (arg.startsWith("--output-buffers=")) {
+				options.withNumberOfOutputBuffers(
+						Integer.parseInt(arg.substring("--output-buffers=".length()))
+				);
+			} else if (arg.startsWith("--output-buffer-size=")) {
+				options.withOutputBufferSize(
+						Integer.parseInt(arg.substring("--output-buffer-size=".length()))
+				);
+			} else if (arg.startsWith("--redact=")) {
+				redactFile = arg.substring("--redact=".length());
+			} else if (arg.startsWith("--compile=")) {
+				dictionaryFile = arg.substring("--compile=".length());
+			} else if (arg.startsWith("--input-dir=")) {
+				inputDirectory = arg.substring("--input-dir=".length());
+			} else if (arg.startsWith("--output-dir=")) {
+				outputDirectory = arg.substring("--output-dir=".length());
+			} else if (arg.startsWith("--glob=")) {
+				glob = arg.substring("--glob=".length());
+			} else {
+				throw new IllegalArgumentException("Unknown argument: " + arg);
+			}
+		}
+
+		// Compiling the dictionary is a separate step, so that later jobs can start from it
+		if (dictionaryFile != null) {
+			try {
+				compileDictionary(redactFile, dictionaryFile);
+			} catch (IOException e) {
+				System.err.println("Problem encountered compiling the dictionary");
+				e.printStackTrace();
+			}
+			return;
+		}
+
+		if (inputDirectory != null) {
+			redactDirectory(inputDirectory, outputDirectory, glob, redactFile, options.build());
+			return;
+		}
+
+		redactWords(inputFile, redactFile, options.build());
 	}
 }
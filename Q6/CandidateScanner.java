@@ -0,0 +1,56 @@
+/**
+ * <p>Finds the indices in some text at which a redaction could start, so that a redactor only has
+ * to look closely at those indices. Most characters in prose are in the middle of a word, and can
+ * be skipped over without checking them against the redacted phrases or the proper noun rules.</p>
+ * <p>A scanner may report an index at which no redaction ends up starting, but must never skip an
+ * index at which one could start.</p>
+ */
+public interface CandidateScanner {
+
+  /**
+   * Finds the first index at which a redaction could start.
+   * @param text The text. The characters before {@code fromIndex} should already have been
+   * redacted, as whether a redaction can start at an index depends on the character before it.
+   * @param fromIndex The index to start searching from (inclusive).
+   * @param toIndex The index to stop searching at (exclusive).
+   * @return The first index at which a redaction could start, or {@code toIndex} if there isn't
+   * one.
+   */
+  int findNextCandidate(char[] text, int fromIndex, int toIndex);
+
+  /**
+   * Creates the fastest scanner that's available for the plan. If the {@code
+   * jdk.incubator.vector} module has been added to the JVM and {@link VectorCandidateScanner} has
+   * been compiled, this uses SIMD instructions to check many characters at a time. Otherwise, each
+   * character is checked in turn.
+   * @param plan The plan for the configuration being used to redact the text.
+   * @return The scanner.
+   */
+  static CandidateScanner forPlan(RedactionPlan plan) {
+    return forScalarScanner(new ScalarCandidateScanner(plan));
+  }
+
+  /**
+   * Creates the fastest scanner that finds the same candidates as the scalar scanner.
+   * @param scalarScanner The scalar scanner.
+   * @return The scanner, which is the scalar scanner itself if it can't be vectorised.
+   * @see #forPlan(RedactionPlan)
+   */
+  static CandidateScanner forScalarScanner(ScalarCandidateScanner scalarScanner) {
+    if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+      return scalarScanner;
+    }
+
+    // The vector scanner is loaded reflectively, so that the rest of the code compiles and runs
+    // without the incubator module
+    try {
+      return (CandidateScanner) Class
+          .forName("VectorCandidateScanner")
+          .getConstructor(ScalarCandidateScanner.class)
+          .newInstance(scalarScanner);
+    } catch (ReflectiveOperationException | LinkageError e) {
+      // Either the scanner wasn't compiled, or it can't help with this plan
+      return scalarScanner;
+    }
+  }
+}
@@ -0,0 +1,315 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * <p>Redacts a file in a way that can be resumed if the job dies part way through, rather than
+ * starting again from the beginning. This is worthwhile for files that take hours to redact.</p>
+ * <p>The file is redacted with a {@link MappedFileRedactor} in segments of a few megabytes, each of
+ * which ends after a blank line. Paragraphs are redacted independently, so nothing about the
+ * redaction carries over from one segment to the next. Every so often, at the end of a segment,
+ * the output file is synced to disk and then a checkpoint is written to a small file alongside
+ * it. The checkpoint holds the positions in the input and output files that the redaction has
+ * reached, along with the size and modification time of the input file so that a checkpoint for
+ * a different version of the file isn't used by mistake. Syncing is the slow part, so it's only
+ * done once per interval rather than after every segment.</p>
+ * <p>When a job is resumed, the output file is cut back to the position in the checkpoint, which
+ * drops anything that was written after it, and the redaction carries on from the matching
+ * position in the input file. Once the whole file has been redacted, the checkpoint is
+ * deleted.</p>
+ * <p>The input file is split at blank lines by looking at its bytes, so the charset must be
+ * UTF-8, US-ASCII or ISO-8859-1.</p>
+ */
+public class CheckpointedFileRedactor {
+
+  // "RCKP", which identifies a checkpoint file
+  private static final int MAGIC_NUMBER = 0x52434B50;
+
+  // Incremented whenever the file layout changes
+  private static final int FORMAT_VERSION = 1;
+
+  // The magic number, the version, the input file's size and modification time, the positions
+  // in the input and output files, and the checksum of everything before it
+  private static final int CHECKPOINT_SIZE =
+      Integer.BYTES + Integer.BYTES + Long.BYTES * 4 + Long.BYTES;
+
+  // The default size of the segments that the input file is redacted in
+  private static final long DEFAULT_SEGMENT_SIZE = 4L * 1024L * 1024L;
+
+  // The default time between checkpoints
+  private static final long DEFAULT_CHECKPOINT_INTERVAL_MILLIS = 10_000L;
+
+  // The number of bytes of a segment to map into memory at once
+  private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+  // The number of characters to decode at once
+  private static final int DECODED_CHUNK_SIZE = 64 * 1024;
+
+  private final MappedFileRedactor fileRedactor;
+  private final long segmentSize;
+  private final long checkpointIntervalNanos;
+
+  /**
+   * Creates a new redactor that reads and writes files in the platform's default charset, and
+   * writes a checkpoint every 10 seconds.
+   * @param redactor The redactor used to redact each paragraph.
+   * @throws NullPointerException Thrown if {@code redactor == null}.
+   * @throws IllegalArgumentException Thrown if the platform's default charset isn't UTF-8,
+   * US-ASCII or ISO-8859-1.
+   */
+  public CheckpointedFileRedactor(Redactor redactor)
+      throws NullPointerException, IllegalArgumentException {
+    this(
+        redactor,
+        Charset.defaultCharset(),
+        DEFAULT_SEGMENT_SIZE,
+        DEFAULT_CHECKPOINT_INTERVAL_MILLIS
+    );
+  }
+
+  /**
+   * Creates a new redactor.
+   * @param redactor The redactor used to redact each paragraph.
+   * @param charset The charset of the input and output files.
+   * @param segmentSize The size in bytes of the segments that the input file is redacted in. Each
+   * segment is extended to the next blank line. A checkpoint can only be written between
+   * segments.
+   * @param checkpointIntervalMillis The minimum time between checkpoints, in milliseconds. If this
+   * is 0, a checkpoint is written after every segment.
+   * @throws NullPointerException Thrown if {@code redactor == null || charset == null}.
+   * @throws IllegalArgumentException Thrown if the charset isn't UTF-8, US-ASCII or ISO-8859-1, or
+   * {@code segmentSize < 1 || checkpointIntervalMillis < 0}.
+   */
+  public CheckpointedFileRedactor(
+      Redactor redactor, Charset charset, long segmentSize, long checkpointIntervalMillis
+  ) throws NullPointerException, IllegalArgumentException {
+    Objects.requireNonNull(redactor, "Redactor is null");
+    Objects.requireNonNull(charset, "Charset is null");
+    if (!MappedFileRedactor.canSplitAtBlankLines(charset)) {
+      throw new IllegalArgumentException(
+          "Checkpoints are only supported for UTF-8, US-ASCII and ISO-8859-1 files, not " + charset
+      );
+    }
+    if (segmentSize < 1L) {
+      throw new IllegalArgumentException("Segment size must be at least 1");
+    }
+    if (checkpointIntervalMillis < 0L) {
+      throw new IllegalArgumentException("Checkpoint interval must not be negative");
+    }
+    this.fileRedactor = new MappedFileRedactor(redactor, charset, WINDOW_SIZE, DECODED_CHUNK_SIZE);
+    this.segmentSize = segmentSize;
+    this.checkpointIntervalNanos = checkpointIntervalMillis * 1_000_000L;
+  }
+
+  /**
+   * Gets the file that the checkpoints for an output file are written to, which is the output
+   * file's name followed by ".checkpoint".
+   * @param outputFile The output file.
+   * @return The checkpoint file.
+   * @throws NullPointerException Thrown if {@code outputFile == null}.
+   */
+  public static Path getCheckpointFile(Path outputFile) throws NullPointerException {
+    Path absoluteOutputFile =
+        Objects.requireNonNull(outputFile, "Output file is null").toAbsolutePath();
+    return absoluteOutputFile.resolveSibling(absoluteOutputFile.getFileName() + ".checkpoint");
+  }
+
+  /**
+   * Redacts the input file, writing the results to the output file. If the job should be resumed,
+   * the redaction carries on from the checkpoint for the output file, and fails without touching
+   * the output file if there isn't one. Otherwise, the output file is replaced if it already
+   * exists.
+   * @param inputFile The file to redact.
+   * @param outputFile The file that the results are written to.
+   * @param resume Should be {@code true} if the job should carry on from its last checkpoint.
+   * @return The position in the input file that the redaction started from, which is {@code 0}
+   * unless the job was resumed.
+   * @throws NullPointerException Thrown if {@code inputFile == null || outputFile == null}.
+   * @throws IOException Thrown if there is a problem reading from or writing to the files, or the
+   * job should be resumed but there's no checkpoint or it doesn't match the files.
+   */
+  public long redact(Path inputFile, Path outputFile, boolean resume)
+      throws NullPointerException, IOException {
+    Objects.requireNonNull(inputFile, "Input file is null");
+    Objects.requireNonNull(outputFile, "Output file is null");
+    Path checkpointFile = getCheckpointFile(outputFile);
+    Checkpoint checkpoint = null;
+    if (resume) {
+      // Starting again would throw away the output that the checkpoint was meant to protect
+      if (!Files.exists(checkpointFile)) {
+        throw new IOException(
+            "There's no checkpoint at " + checkpointFile + " to resume from. Start the job again "
+                + "without resuming"
+        );
+      }
+      checkpoint = Checkpoint.read(checkpointFile);
+    } else {
+      Files.deleteIfExists(checkpointFile);
+    }
+
+    try (
+        FileChannel inputChannel = FileChannel.open(inputFile, StandardOpenOption.READ);
+        FileChannel outputChannel = FileChannel.open(
+            outputFile, StandardOpenOption.WRITE, StandardOpenOption.CREATE
+        )
+    ) {
+      long inputSize = inputChannel.size();
+      long inputLastModified = Files.getLastModifiedTime(inputFile).toMillis();
+      long inputPosition = 0L;
+      if (checkpoint != null) {
+        checkpoint.checkMatches(inputSize, inputLastModified, outputChannel.size(), checkpointFile);
+        inputPosition = checkpoint.inputPosition;
+      }
+
+      // Drop anything that was written after the checkpoint, or the old output file's contents
+      long outputPosition = checkpoint == null ? 0L : checkpoint.outputPosition;
+      outputChannel.truncate(outputPosition);
+      outputChannel.position(outputPosition);
+
+      long startPosition = inputPosition;
+      long lastCheckpointTime = System.nanoTime();
+      while (inputPosition < inputSize) {
+        long segmentEnd = MappedFileRedactor.findBlankLineEnd(
+            inputChannel, inputPosition + segmentSize, inputSize
+        );
+        fileRedactor.redact(inputChannel, inputPosition, segmentEnd, outputChannel);
+        inputPosition = segmentEnd;
+
+        if (inputPosition < inputSize
+            && System.nanoTime() - lastCheckpointTime >= checkpointIntervalNanos
+        ) {
+          // The output has to be on disk before the checkpoint that refers to it
+          outputChannel.force(false);
+          new Checkpoint(inputSize, inputLastModified, inputPosition, outputChannel.position())
+              .write(checkpointFile);
+          lastCheckpointTime = System.nanoTime();
+        }
+      }
+
+      Files.deleteIfExists(checkpointFile);
+      return startPosition;
+    }
+  }
+
+  /**
+   * How far a job has got, and the version of the input file that it was redacting.
+   */
+  private static class Checkpoint {
+    private final long inputSize;
+    private final long inputLastModified;
+    private final long inputPosition;
+    private final long outputPosition;
+
+    // Initialises the checkpoint with the input file's details and the positions reached
+    private Checkpoint(
+        long inputSize, long inputLastModified, long inputPosition, long outputPosition
+    ) {
+      this.inputSize = inputSize;
+      this.inputLastModified = inputLastModified;
+      this.inputPosition = inputPosition;
+      this.outputPosition = outputPosition;
+    }
+
+    /**
+     * Writes the checkpoint to a temporary file, which then replaces the checkpoint file in one
+     * step, so the checkpoint file is never partly written.
+     * @param file The checkpoint file.
+     * @throws IOException Thrown if there is a problem writing the file.
+     */
+    private void write(Path file) throws IOException {
+      ByteBuffer buffer = ByteBuffer.allocate(CHECKPOINT_SIZE)
+          .putInt(MAGIC_NUMBER)
+          .putInt(FORMAT_VERSION)
+          .putLong(inputSize)
+          .putLong(inputLastModified)
+          .putLong(inputPosition)
+          .putLong(outputPosition);
+      CRC32C checksum = new CRC32C();
+      checksum.update(buffer.array(), 0, buffer.position());
+      buffer.putLong(checksum.getValue()).flip();
+
+      Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+      try {
+        try (
+            FileChannel channel = FileChannel.open(
+                temporaryFile,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+            )
+        ) {
+          while (buffer.hasRemaining()) {
+            channel.write(buffer);
+          }
+          channel.force(true);
+        }
+        Files.move(
+            temporaryFile,
+            file,
+            StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE
+        );
+      } finally {
+        Files.deleteIfExists(temporaryFile);
+      }
+    }
+
+    /**
+     * Reads a checkpoint that was written to a file.
+     * @param file The checkpoint file.
+     * @return The checkpoint.
+     * @throws IOException Thrown if there is a problem reading the file, or it isn't a checkpoint
+     * written by this version.
+     */
+    private static Checkpoint read(Path file) throws IOException {
+      ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+      if (buffer.capacity() != CHECKPOINT_SIZE || buffer.getInt() != MAGIC_NUMBER) {
+        throw new IOException(file + " isn't a checkpoint");
+      }
+      int version = buffer.getInt();
+      if (version != FORMAT_VERSION) {
+        throw new IOException(
+            file + " has version " + version + ", but only version " + FORMAT_VERSION
+                + " is supported. Start the job again without resuming"
+        );
+      }
+      CRC32C checksum = new CRC32C();
+      checksum.update(buffer.array(), 0, CHECKPOINT_SIZE - Long.BYTES);
+      if (checksum.getValue() != buffer.getLong(CHECKPOINT_SIZE - Long.BYTES)) {
+        throw new IOException(file + " is corrupt, as its checksum doesn't match");
+      }
+      return new Checkpoint(buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Checks that the checkpoint was written for the files as they are now.
+     * @param inputSize The size of the input file.
+     * @param inputLastModified The time that the input file was last modified, in milliseconds.
+     * @param outputSize The size of the output file.
+     * @param file The checkpoint file, for the error message.
+     * @throws IOException Thrown if the input file has changed since the checkpoint, or the output
+     * file is shorter than the checkpoint says.
+     */
+    private void checkMatches(long inputSize, long inputLastModified, long outputSize, Path file)
+        throws IOException {
+      if (inputSize != this.inputSize || inputLastModified != this.inputLastModified) {
+        throw new IOException(
+            "The input file has changed since " + file + " was written. Start the job again "
+                + "without resuming"
+        );
+      }
+      if (outputSize < outputPosition || inputPosition < 0L || inputPosition > inputSize) {
+        throw new IOException(
+            "The output file doesn't match " + file + ". Start the job again without resuming"
+        );
+      }
+    }
+  }
+}
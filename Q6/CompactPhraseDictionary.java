@@ -0,0 +1,635 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * <p>A set of redacted phrases stored compactly outside of the heap, for dictionaries with millions
+ * of phrases. Rather than a {@link String} per phrase, the phrases are encoded as UTF-8 into a
+ * single direct buffer, with a second buffer holding the offset at which each phrase starts. This
+ * takes a fraction of the memory, and leaves the garbage collector with almost nothing to trace.
+ * </p>
+ * <p>The phrases are stored in the same form as the symbols used by {@link
+ * AhoCorasickPhraseMatcher}: case-folded if phrases are matched case-insensitively, with each space
+ * matching a run of whitespace. They're sorted by their encoded bytes, so all of the phrases that
+ * share a prefix are next to each other. A phrase is matched by narrowing the range of phrases one
+ * byte at a time as the text is read, which is done directly on the buffers. Each character is
+ * encoded on its own, so a surrogate takes three bytes rather than a pair taking four. This keeps
+ * the byte order the same as the character order.</p>
+ * <p>Phrases containing whitespace other than a single space are rare, and are held as strings and
+ * tried one by one, longest first.</p>
+ * <p>A dictionary can be {@linkplain #write(Path) written} to a file and {@linkplain #load(Path)
+ * loaded} back again. The file holds the buffers as they are, so loading one just maps the file
+ * into memory rather than parsing, sorting and encoding the phrases again. The file starts with a
+ * header holding a version number and a checksum of the rest of the file, so a file written by a
+ * different version, or one that has been damaged, is rejected rather than giving the wrong
+ * redactions.</p>
+ * <p>The dictionary is immutable and thread safe.</p>
+ */
+public class CompactPhraseDictionary implements PhraseMatcher {
+
+  // "RDCT", which identifies a compiled dictionary file
+  private static final int MAGIC_NUMBER = 0x52444354;
+
+  // Incremented whenever the file layout changes
+  private static final int FORMAT_VERSION = 1;
+
+  // The magic number, the version and the checksum of everything after the header
+  private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+  // The size of the chunks that the offsets are written in
+  private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+  private final RedactionPlan plan;
+  private final IntBuffer offsets;
+  private final ByteBuffer phrases;
+  private final int numberOfPhrases;
+  private final List<String> irregularPhrases;
+  private final BitSet phraseStartCharacters;
+  private final int longestPhraseLength;
+
+  /**
+   * Creates a new dictionary containing the phrases that have been added to the builder, using
+   * the builder's settings. The phrases are split into their words if sub-phrase matching is
+   * enabled.
+   * @param builder The builder that specifies the phrases, and how redactions should be found and
+   * replaced.
+   * @throws NullPointerException Thrown if {@code builder == null}.
+   * @throws IllegalArgumentException Thrown if the phrases take more than 2GB once encoded.
+   */
+  public CompactPhraseDictionary(RedactionConfiguration.Builder builder)
+      throws NullPointerException, IllegalArgumentException {
+    Objects.requireNonNull(builder, "Builder is null");
+    this.plan = new RedactionPlan(builder.buildWithoutRedactedPhrases());
+
+    // Work out the phrases to store. These strings are only needed while the buffers are built
+    List<String> regularPhrases = new ArrayList<>();
+    List<String> irregularPhrases = new ArrayList<>();
+    int longestPhraseLength = 0;
+    for (String phrase : builder.getRedactedPhrases()) {
+      String[] indexedPhrases = builder.isSubPhraseMatching()
+          ? RedactionConfiguration.splitIntoSubPhrases(phrase)
+          : new String[] {phrase};
+      for (String indexedPhrase : indexedPhrases) {
+        // An empty phrase never results in a redaction, so there's no need to store it
+        if (indexedPhrase.isEmpty()) {
+          continue;
+        }
+        longestPhraseLength = Math.max(longestPhraseLength, indexedPhrase.length());
+        if (isIrregular(indexedPhrase)) {
+          irregularPhrases.add(indexedPhrase);
+        } else {
+          regularPhrases.add(toSymbols(indexedPhrase));
+        }
+      }
+    }
+
+    // Strings compare by character, which is the same as comparing the encoded bytes. Phrases
+    // that are the same once case-folded only need to be stored once
+    Collections.sort(regularPhrases);
+    int numberOfPhrases = 0;
+    long numberOfBytes = 0L;
+    for (int i = 0; i < regularPhrases.size(); i++) {
+      String phrase = regularPhrases.get(i);
+      if (numberOfPhrases == 0 || !phrase.equals(regularPhrases.get(numberOfPhrases - 1))) {
+        regularPhrases.set(numberOfPhrases++, phrase);
+        numberOfBytes += getEncodedLength(phrase);
+      }
+    }
+    if (numberOfBytes > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Phrases must fit in 2GB once encoded");
+    }
+
+    this.numberOfPhrases = numberOfPhrases;
+    this.offsets = ByteBuffer.allocateDirect((numberOfPhrases + 1) * Integer.BYTES).asIntBuffer();
+    this.phrases = ByteBuffer.allocateDirect((int) numberOfBytes);
+    for (int i = 0; i < numberOfPhrases; i++) {
+      offsets.put(i, phrases.position());
+      encode(regularPhrases.get(i), phrases);
+    }
+    offsets.put(numberOfPhrases, phrases.position());
+
+    irregularPhrases.sort((o1, o2) -> Integer.compare(o2.length(), o1.length()));
+    this.irregularPhrases = Collections.unmodifiableList(irregularPhrases);
+    this.phraseStartCharacters =
+        getPhraseStartCharacters(regularPhrases.subList(0, numberOfPhrases), irregularPhrases);
+    this.longestPhraseLength = longestPhraseLength;
+  }
+
+  // Creates a dictionary from buffers that have already been built, e.g. when it's loaded
+  private CompactPhraseDictionary(
+      RedactionPlan plan,
+      IntBuffer offsets,
+      ByteBuffer phrases,
+      List<String> irregularPhrases,
+      BitSet phraseStartCharacters,
+      int longestPhraseLength
+  ) {
+    this.plan = plan;
+    this.offsets = offsets;
+    this.phrases = phrases;
+    this.numberOfPhrases = offsets.capacity() - 1;
+    this.irregularPhrases = Collections.unmodifiableList(irregularPhrases);
+    this.phraseStartCharacters = phraseStartCharacters;
+    this.longestPhraseLength = longestPhraseLength;
+  }
+
+  // Phrases containing whitespace other than a single space can't be matched against the text's
+  // symbols, as the text's whitespace is collapsed into a single space
+  private static boolean isIrregular(String phrase) {
+    for (int i = 0; i < phrase.length(); i++) {
+      char character = phrase.charAt(i);
+      if (character != ' ' && Character.isWhitespace(character)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Converts the phrase into the symbols that are stored
+  private String toSymbols(String phrase) {
+    char[] symbols = new char[phrase.length()];
+    for (int i = 0; i < symbols.length; i++) {
+      symbols[i] = plan.foldCase(phrase.charAt(i));
+    }
+    return new String(symbols);
+  }
+
+  /**
+   * Finds the characters that could start a phrase, i.e. those that fold to the first symbol of one
+   * of the phrases.
+   * @param regularPhrases The symbols of the phrases that are stored in the buffers.
+   * @param irregularPhrases The phrases that are held as strings.
+   * @return The characters.
+   */
+  private BitSet getPhraseStartCharacters(
+      List<String> regularPhrases, List<String> irregularPhrases
+  ) {
+    BitSet firstSymbols = new BitSet(Character.MAX_VALUE + 1);
+    for (String phrase : regularPhrases) {
+      firstSymbols.set(phrase.charAt(0));
+    }
+    for (String phrase : irregularPhrases) {
+      firstSymbols.set(plan.foldCase(phrase.charAt(0)));
+    }
+
+    BitSet phraseStartCharacters = new BitSet(Character.MAX_VALUE + 1);
+    for (int character = Character.MIN_VALUE; character <= Character.MAX_VALUE; character++) {
+      if (firstSymbols.get(plan.foldCase((char) character))) {
+        phraseStartCharacters.set(character);
+      }
+    }
+    return phraseStartCharacters;
+  }
+
+  // Gets the number of bytes needed to encode each of the characters in turn
+  private static int getEncodedLength(String phrase) {
+    int length = 0;
+    for (int i = 0; i < phrase.length(); i++) {
+      length += getEncodedLength(phrase.charAt(i));
+    }
+    return length;
+  }
+
+  // Gets the number of bytes needed to encode the character
+  private static int getEncodedLength(char character) {
+    return character < 0x80 ? 1 : character < 0x800 ? 2 : 3;
+  }
+
+  /**
+   * Gets one of the bytes that encode a character.
+   * @param character The character.
+   * @param encodedLength The number of bytes that encode the character.
+   * @param index The index of the byte.
+   * @return The byte, as an unsigned value.
+   */
+  private static int getEncodedByte(char character, int encodedLength, int index) {
+    if (encodedLength == 1) {
+      return character;
+    }
+    if (index == 0) {
+      return (encodedLength == 2 ? 0xC0 : 0xE0) | (character >> (6 * (encodedLength - 1)));
+    }
+    return 0x80 | ((character >> (6 * (encodedLength - 1 - index))) & 0x3F);
+  }
+
+  // Encodes each of the characters in turn, so that the bytes sort in the same order as the chars
+  private static void encode(String phrase, ByteBuffer buffer) {
+    for (int i = 0; i < phrase.length(); i++) {
+      char character = phrase.charAt(i);
+      int encodedLength = getEncodedLength(character);
+      for (int j = 0; j < encodedLength; j++) {
+        buffer.put((byte) getEncodedByte(character, encodedLength, j));
+      }
+    }
+  }
+
+  /**
+   * Writes the dictionary to a file, so that it can be {@linkplain #load(Path) loaded} later. The
+   * dictionary is written to a temporary file first, which then replaces the file in one step, so
+   * another process never sees a partly written file. This also means that a file which is
+   * already loaded elsewhere can be replaced safely.
+   * @param file The file to write to.
+   * @throws NullPointerException Thrown if {@code file == null}.
+   * @throws IOException Thrown if there is a problem writing the file.
+   */
+  public void write(Path file) throws NullPointerException, IOException {
+    Path absoluteFile = Objects.requireNonNull(file, "File is null").toAbsolutePath();
+    Path temporaryFile = absoluteFile.resolveSibling(absoluteFile.getFileName() + ".tmp");
+    try {
+      try (
+          FileChannel channel = FileChannel.open(
+              temporaryFile,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.WRITE
+          )
+      ) {
+        // The checksum is only known once the rest of the file has been written
+        CRC32C checksum = new CRC32C();
+        channel.position(HEADER_SIZE);
+        write(channel, ByteBuffer.wrap(getDescription()), checksum);
+        ByteBuffer offsetBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        for (int i = 0; i <= numberOfPhrases; i++) {
+          if (!offsetBuffer.hasRemaining()) {
+            write(channel, offsetBuffer.flip(), checksum);
+            offsetBuffer.clear();
+          }
+          offsetBuffer.putInt(offsets.get(i));
+        }
+        write(channel, offsetBuffer.flip(), checksum);
+        write(channel, phrases.duplicate().clear(), checksum);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+            .putInt(MAGIC_NUMBER)
+            .putInt(FORMAT_VERSION)
+            .putLong(checksum.getValue())
+            .flip();
+        channel.position(0L);
+        write(channel, header, null);
+        channel.force(true);
+      }
+      Files.move(
+          temporaryFile,
+          absoluteFile,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE
+      );
+    } finally {
+      Files.deleteIfExists(temporaryFile);
+    }
+  }
+
+  /**
+   * Describes everything about the dictionary other than its buffers: the settings, the irregular
+   * phrases, the tables of characters that are worked out from them and the sizes of the
+   * buffers. This is padded so that the offsets that follow it in the
+   * file start on a 4 byte boundary.
+   * @return The description, ready to write.
+   * @throws IOException Never, as the description is written to memory.
+   */
+  private byte[] getDescription() throws IOException {
+    RedactionConfiguration configuration = plan.getConfiguration();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    output.writeBoolean(configuration.isMatchRedactedWordCase());
+    output.writeBoolean(configuration.isFullWordMatching());
+    writeString(output, configuration.getWordSeparatorRegex());
+    writeString(output, configuration.getProperNounDetection().name());
+    output.writeChar(configuration.getReplacementCharacter());
+
+    output.writeInt(longestPhraseLength);
+    output.writeInt(irregularPhrases.size());
+    for (String irregularPhrase : irregularPhrases) {
+      writeString(output, irregularPhrase);
+    }
+    writeBitSet(output, plan.getWordSeparators());
+    writeBitSet(output, phraseStartCharacters);
+    output.writeInt(numberOfPhrases);
+    output.writeInt(phrases.capacity());
+
+    while ((HEADER_SIZE + output.size()) % Integer.BYTES != 0) {
+      output.writeByte(0);
+    }
+    return bytes.toByteArray();
+  }
+
+  // Writes a bit set as the number of longs followed by the longs
+  private static void writeBitSet(DataOutputStream output, BitSet bitSet) throws IOException {
+    long[] words = bitSet.toLongArray();
+    output.writeInt(words.length);
+    for (long word : words) {
+      output.writeLong(word);
+    }
+  }
+
+  // Writes a string as its length followed by its chars. Phrases may contain unpaired surrogates,
+  // which wouldn't survive being encoded as UTF-8
+  private static void writeString(DataOutputStream output, String string) throws IOException {
+    output.writeInt(string.length());
+    output.writeChars(string);
+  }
+
+  // Writes all of the buffer's remaining bytes, adding them to the checksum if there is one
+  private static void write(FileChannel channel, ByteBuffer buffer, CRC32C checksum)
+      throws IOException {
+    if (checksum != null) {
+      checksum.update(buffer.duplicate());
+    }
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  /**
+   * Checks whether a file holds a dictionary that was {@linkplain #write(Path) written} by this
+   * class, rather than a list of phrases.
+   * @param file The file to check.
+   * @return {@code true} if the file starts with a compiled dictionary's header.
+   * @throws NullPointerException Thrown if {@code file == null}.
+   * @throws IOException Thrown if there is a problem reading the file.
+   */
+  public static boolean isCompiledDictionary(Path file) throws NullPointerException, IOException {
+    Objects.requireNonNull(file, "File is null");
+    try (InputStream input = Files.newInputStream(file)) {
+      byte[] magicNumber = input.readNBytes(Integer.BYTES);
+      return magicNumber.length == Integer.BYTES
+          && ByteBuffer.wrap(magicNumber).getInt() == MAGIC_NUMBER;
+    }
+  }
+
+  /**
+   * Loads a dictionary that was {@linkplain #write(Path) written} to a file. The file is mapped
+   * into memory and the dictionary reads its buffers straight from the mapping, so the only work
+   * done up front is checking the checksum. The mapping stays valid if the file is later replaced.
+   * @param file The file to load.
+   * @return The dictionary.
+   * @throws NullPointerException Thrown if {@code file == null}.
+   * @throws IOException Thrown if there is a problem reading the file, or the file isn't a
+   * dictionary written by this version.
+   */
+  public static CompactPhraseDictionary load(Path file) throws NullPointerException, IOException {
+    Objects.requireNonNull(file, "File is null");
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException(file + " is too large to be a compiled dictionary");
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+    }
+
+    if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC_NUMBER) {
+      throw new IOException(file + " isn't a compiled dictionary");
+    }
+    int version = buffer.getInt(Integer.BYTES);
+    if (version != FORMAT_VERSION) {
+      throw new IOException(
+          file + " has version " + version + ", but only version " + FORMAT_VERSION
+              + " is supported. Compile the dictionary again"
+      );
+    }
+    ByteBuffer body = buffer.slice(HEADER_SIZE, buffer.capacity() - HEADER_SIZE);
+    CRC32C checksum = new CRC32C();
+    checksum.update(body.duplicate());
+    if (checksum.getValue() != buffer.getLong(Integer.BYTES + Integer.BYTES)) {
+      throw new IOException(file + " is corrupt, as its checksum doesn't match");
+    }
+
+    try {
+      return load(body);
+    } catch (RuntimeException e) {
+      // The checksum matched, so the file was written wrongly rather than damaged since
+      throw new IOException(file + " isn't a valid compiled dictionary", e);
+    }
+  }
+
+  /**
+   * Creates a dictionary from the body of a file, i.e. everything after the header.
+   * @param body The body, positioned at its start.
+   * @return The dictionary.
+   * @throws IOException Thrown if the sizes of the buffers don't match the body.
+   */
+  private static CompactPhraseDictionary load(ByteBuffer body) throws IOException {
+    RedactionConfiguration.Builder builder = RedactionConfiguration.builder()
+        .withMatchRedactedWordCase(body.get() != 0)
+        .withFullWordMatching(body.get() != 0)
+        .withWordSeparatorCharacterRegex(readString(body))
+        .withProperNounDetection(ProperNounDetection.valueOf(readString(body)))
+        .withReplacementCharacter(body.getChar());
+
+    int longestPhraseLength = body.getInt();
+    List<String> irregularPhrases = new ArrayList<>();
+    for (int i = body.getInt(); i > 0; i--) {
+      irregularPhrases.add(readString(body));
+    }
+    BitSet wordSeparators = readBitSet(body);
+    BitSet phraseStartCharacters = readBitSet(body);
+    int numberOfPhrases = body.getInt();
+    int numberOfBytes = body.getInt();
+    while ((HEADER_SIZE + body.position()) % Integer.BYTES != 0) {
+      body.get();
+    }
+
+    long offsetsSize = (numberOfPhrases + 1L) * Integer.BYTES;
+    if (numberOfPhrases < 0 || body.remaining() != offsetsSize + numberOfBytes) {
+      throw new IOException("The sizes of the buffers don't match the size of the file");
+    }
+    IntBuffer offsets = body.slice(body.position(), (int) offsetsSize).asIntBuffer();
+    ByteBuffer phrases = body.slice(body.position() + (int) offsetsSize, numberOfBytes);
+
+    return new CompactPhraseDictionary(
+        new RedactionPlan(builder.buildWithoutRedactedPhrases(), wordSeparators),
+        offsets,
+        phrases,
+        irregularPhrases,
+        phraseStartCharacters,
+        longestPhraseLength
+    );
+  }
+
+  // Reads a bit set that was written as the number of longs followed by the longs
+  private static BitSet readBitSet(ByteBuffer buffer) {
+    long[] words = new long[buffer.getInt()];
+    for (int i = 0; i < words.length; i++) {
+      words[i] = buffer.getLong();
+    }
+    return BitSet.valueOf(words);
+  }
+
+  // Reads a string that was written as its length followed by its chars
+  private static String readString(ByteBuffer buffer) {
+    char[] characters = new char[buffer.getInt()];
+    buffer.asCharBuffer().get(characters);
+    buffer.position(buffer.position() + characters.length * Character.BYTES);
+    return new String(characters);
+  }
+
+  /**
+   * Gets the plan for the settings that the dictionary was created with. The plan's configuration
+   * has no redacted phrases of its own.
+   * @return The plan.
+   */
+  public RedactionPlan getPlan() {
+    return plan;
+  }
+
+  /**
+   * Gets the number of phrases in the dictionary, after any sub-phrase splitting and case folding.
+   * @return The number of phrases.
+   */
+  public int getNumberOfPhrases() {
+    return numberOfPhrases + irregularPhrases.size();
+  }
+
+  /**
+   * Gets the size of the buffers that the phrases are stored in.
+   * @return The size of the buffers, in bytes.
+   */
+  public long getSizeInBytes() {
+    return (long) phrases.capacity() + (long) offsets.capacity() * Integer.BYTES;
+  }
+
+  /**
+   * Gets the length of the longest phrase.
+   * @return The length of the longest phrase, or {@code 0} if there are no phrases.
+   */
+  public int getLongestPhraseLength() {
+    return longestPhraseLength;
+  }
+
+  /**
+   * Creates the scanner that finds the indices at which one of these phrases, or a proper noun,
+   * could start.
+   * @return The scanner.
+   */
+  public CandidateScanner createCandidateScanner() {
+    return CandidateScanner.forScalarScanner(
+        new ScalarCandidateScanner(plan, phraseStartCharacters)
+    );
+  }
+
+  @Override
+  public Matches findMatches(CharSequence text) throws NullPointerException {
+    Objects.requireNonNull(text, "Text is null");
+    return index -> getMatchEndIndex(text, index);
+  }
+
+  /**
+   * Gets the end index of the longest phrase that starts at the given index.
+   * @param text The text.
+   * @param index The start index.
+   * @return The end index (exclusive) of the match, or {@code -1} if no phrase starts at the index.
+   */
+  private int getMatchEndIndex(CharSequence text, int index) {
+    boolean fullWordMatching = plan.getConfiguration().isFullWordMatching();
+
+    // The range of phrases that start with the symbols read so far
+    int low = 0;
+    int high = numberOfPhrases;
+    int byteDepth = 0;
+    int depth = 0;
+    int matchLength = 0;
+    int matchEndIndex = -1;
+    int textIndex = index;
+
+    while (low < high && textIndex < text.length()) {
+      char character = text.charAt(textIndex++);
+      char symbol;
+
+      // Collapse runs of whitespace into a single space
+      if (Character.isWhitespace(character)) {
+        symbol = ' ';
+        while (textIndex < text.length() && Character.isWhitespace(text.charAt(textIndex))) {
+          textIndex++;
+        }
+      } else {
+        symbol = plan.foldCase(character);
+      }
+
+      // Narrow the range by each of the symbol's bytes in turn
+      int encodedLength = getEncodedLength(symbol);
+      for (int i = 0; i < encodedLength && low < high; i++, byteDepth++) {
+        int encodedByte = getEncodedByte(symbol, encodedLength, i);
+        low = findFirstPhraseWithByteAtLeast(low, high, byteDepth, encodedByte);
+        high = findFirstPhraseWithByteAtLeast(low, high, byteDepth, encodedByte + 1);
+      }
+      if (low >= high) {
+        break;
+      }
+      depth++;
+
+      // A phrase that ends here sorts before the longer phrases in the range
+      if (getPhraseLength(low) == byteDepth
+          && (!fullWordMatching
+              || textIndex >= text.length()
+              || plan.isWordSeparator(text.charAt(textIndex)))
+      ) {
+        matchLength = depth;
+        matchEndIndex = textIndex;
+      }
+    }
+
+    // Irregular phrases take priority if they're longer than the phrase found in the buffers
+    for (String irregularPhrase : irregularPhrases) {
+      if (irregularPhrase.length() <= matchLength) {
+        break;
+      }
+      int irregularMatchEndIndex =
+          plan.getLinearPhraseMatcher().getMatchEndIndex(text, index, irregularPhrase);
+      if (irregularMatchEndIndex >= 0) {
+        return irregularMatchEndIndex;
+      }
+    }
+    return matchEndIndex;
+  }
+
+  /**
+   * Finds the first phrase in the range whose byte at the given depth is at least the given value.
+   * @param low The start of the range (inclusive).
+   * @param high The end of the range (exclusive).
+   * @param byteDepth The depth of the byte to compare. Every phrase in the range shares the bytes
+   * before this one, so the range is sorted by this byte.
+   * @param value The value, as an unsigned byte.
+   * @return The index of the phrase, or {@code high} if there isn't one.
+   */
+  private int findFirstPhraseWithByteAtLeast(int low, int high, int byteDepth, int value) {
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (getByte(middle, byteDepth) < value) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Gets a byte of a phrase.
+   * @param phraseIndex The index of the phrase.
+   * @param byteDepth The index of the byte within the phrase.
+   * @return The byte as an unsigned value, or {@code -1} if the phrase is shorter than that.
+   */
+  private int getByte(int phraseIndex, int byteDepth) {
+    int offset = offsets.get(phraseIndex) + byteDepth;
+    return offset < offsets.get(phraseIndex + 1) ? phrases.get(offset) & 0xFF : -1;
+  }
+
+  // Gets the number of bytes in a phrase
+  private int getPhraseLength(int phraseIndex) {
+    return offsets.get(phraseIndex + 1) - offsets.get(phraseIndex);
+  }
+}
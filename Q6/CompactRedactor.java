@@ -0,0 +1,29 @@
+import java.util.Objects;
+
+/**
+ * A {@link Redactor} that finds redacted phrases in a {@link CompactPhraseDictionary}. This
+ * produces the same output as a {@link SimpleTextRedactor} created with the same phrases and
+ * settings, but the phrases take up far less memory, which matters for dictionaries with millions
+ * of phrases.
+ */
+public class CompactRedactor extends SimpleTextRedactor {
+
+  /**
+   * Creates a new redactor for the phrases in the dictionary.
+   * @param dictionary The dictionary, which also specifies how redactions should be found and
+   * replaced.
+   * @param listener The listener that is notified of each redaction, or {@code null} if no
+   * listener is required.
+   * @throws NullPointerException Thrown if {@code dictionary == null}.
+   */
+  public CompactRedactor(CompactPhraseDictionary dictionary, RedactionListener listener)
+      throws NullPointerException {
+    super(
+        Objects.requireNonNull(dictionary, "Dictionary is null").getPlan(),
+        dictionary,
+        dictionary.createCandidateScanner(),
+        dictionary.getLongestPhraseLength(),
+        listener
+    );
+  }
+}
@@ -0,0 +1,362 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * <p>Redacts every file in a directory tree, writing the results to the same relative paths under
+ * an output directory. Each file is redacted with a {@link MappedFileRedactor}, so the original
+ * line terminators are preserved.</p>
+ * <p>The files are split between the threads of a {@link ForkJoinPool}, and idle threads steal
+ * work from busy ones. Files can vary a lot in size, so a large file is also split into chunks at
+ * blank lines, which can then be stolen like any other task. Paragraphs never cross a blank line,
+ * so each chunk can be redacted on its own without changing the result. The chunks are redacted
+ * into memory and written out in order, with only a couple of chunks per thread in flight for each
+ * file so that the heap doesn't have to hold the whole file. Files are only split if their charset
+ * encodes a line feed as a single byte that can't appear inside another character, i.e. UTF-8,
+ * US-ASCII or ISO-8859-1.</p>
+ * <p>All of the files are redacted with the same redactor, so the configuration is only compiled
+ * once.</p>
+ * <p>This class is thread safe.</p>
+ */
+public class DirectoryRedactor {
+
+  // The default size above which a file is split into chunks
+  private static final long DEFAULT_CHUNK_SIZE = 4L * 1024L * 1024L;
+
+  // The number of chunks of a file that may be in flight for each thread in the pool
+  private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 2;
+
+  // How many times the chunk size a chunk can grow to, if there's no blank line near where it
+  // should end, before it's too big to be redacted into memory
+  private static final long MAXIMUM_CHUNK_GROWTH = 2L;
+
+  // The amount of each file that is mapped into memory at once
+  private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+  // The number of characters that are decoded at once. Most files in a tree tend to be small, so
+  // this is much less than a MappedFileRedactor decodes by default, to save allocating a large
+  // buffer for every file
+  private static final int DECODED_CHUNK_SIZE = 64 * 1024;
+
+  private final MappedFileRedactor fileRedactor;
+  private final ForkJoinPool pool;
+  private final boolean splittable;
+  private final long chunkSize;
+
+  /**
+   * Creates a new redactor that reads and writes files in the platform's default charset, splitting
+   * files of more than 4MB into chunks.
+   * @param redactor The redactor used to redact each paragraph. This must be safe to use from
+   * multiple threads.
+   * @param pool The pool whose threads redact the files.
+   * @throws NullPointerException Thrown if {@code redactor == null || pool == null}.
+   */
+  public DirectoryRedactor(Redactor redactor, ForkJoinPool pool) throws NullPointerException {
+    this(redactor, pool, Charset.defaultCharset(), DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Creates a new redactor.
+   * @param redactor The redactor used to redact each paragraph. This must be safe to use from
+   * multiple threads.
+   * @param pool The pool whose threads redact the files.
+   * @param charset The charset of the input and output files.
+   * @param chunkSize The size in bytes above which a file is split into chunks. The chunks are
+   * roughly this size, extended to the next blank line.
+   * @throws NullPointerException Thrown if {@code redactor == null || pool == null || charset ==
+   * null}.
+   * @throws IllegalArgumentException Thrown if {@code chunkSize < 1}.
+   */
+  public DirectoryRedactor(Redactor redactor, ForkJoinPool pool, Charset charset, long chunkSize)
+      throws NullPointerException, IllegalArgumentException {
+    if (chunkSize < 1L) {
+      throw new IllegalArgumentException("Chunk size must be at least 1");
+    }
+    this.fileRedactor = new MappedFileRedactor(redactor, charset, WINDOW_SIZE, DECODED_CHUNK_SIZE);
+    this.pool = Objects.requireNonNull(pool, "Pool is null");
+    this.splittable = MappedFileRedactor.canSplitAtBlankLines(charset);
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Redacts every regular file under the input directory whose path, relative to the input
+   * directory, matches the glob. Each result is written to the same relative path under the output
+   * directory, creating any directories that are missing and replacing any files that already
+   * exist. If the output directory is inside the input directory, the files in it aren't
+   * redacted.
+   * @param inputDirectory The directory to redact.
+   * @param outputDirectory The directory that the results are written to.
+   * @param glob The glob that the relative paths of the files must match, such as {@code
+   * "**.txt"}, or {@code null} to redact every file.
+   * @return The stats for the job.
+   * @throws NullPointerException Thrown if {@code inputDirectory == null || outputDirectory ==
+   * null}.
+   * @throws IllegalArgumentException Thrown if the glob is invalid.
+   * @throws IOException Thrown if there is a problem reading from or writing to any of the files.
+   * The job stops at the first problem.
+   */
+  public Result redact(Path inputDirectory, Path outputDirectory, String glob)
+      throws NullPointerException, IllegalArgumentException, IOException {
+    Objects.requireNonNull(inputDirectory, "Input directory is null");
+    Objects.requireNonNull(outputDirectory, "Output directory is null");
+    PathMatcher matcher =
+        glob == null ? null : FileSystems.getDefault().getPathMatcher("glob:" + glob);
+    long startTime = System.nanoTime();
+
+    Path absoluteOutputDirectory = outputDirectory.toAbsolutePath().normalize();
+    List<Path> inputFiles;
+    try (Stream<Path> paths = Files.walk(inputDirectory)) {
+      inputFiles = paths
+          .filter(path -> !path.toAbsolutePath().normalize().startsWith(absoluteOutputDirectory))
+          .filter(Files::isRegularFile)
+          .filter(path -> matcher == null || matcher.matches(inputDirectory.relativize(path)))
+          .collect(Collectors.toList());
+    }
+
+    LongAdder numberOfBytes = new LongAdder();
+    try {
+      if (!inputFiles.isEmpty()) {
+        pool.invoke(new FilesTask(
+            inputDirectory, outputDirectory, inputFiles, 0, inputFiles.size(), numberOfBytes
+        ));
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return new Result(inputFiles.size(), numberOfBytes.sum(), System.nanoTime() - startTime);
+  }
+
+  /**
+   * Redacts a file, splitting it into chunks if it's large.
+   * @param inputFile The file to redact.
+   * @param outputFile The file that the results are written to.
+   * @return The size of the input file in bytes.
+   * @throws IOException Thrown if there is a problem reading from or writing to the files.
+   */
+  private long redactFile(Path inputFile, Path outputFile) throws IOException {
+    Path outputParent = outputFile.getParent();
+    if (outputParent != null) {
+      Files.createDirectories(outputParent);
+    }
+
+    try (
+        FileChannel inputChannel = FileChannel.open(inputFile, StandardOpenOption.READ);
+        FileChannel outputChannel = FileChannel.open(
+            outputFile,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING
+        )
+    ) {
+      long size = inputChannel.size();
+      if (!splittable || size <= chunkSize) {
+        fileRedactor.redact(inputChannel, 0L, size, outputChannel);
+      } else {
+        redactChunks(inputChannel, size, outputChannel);
+      }
+      return size;
+    }
+  }
+
+  /**
+   * Splits the file into chunks, redacting them in parallel and writing the results in order. The
+   * oldest chunk is written out before another is started if there are already enough in flight.
+   * Waiting for a chunk lets this thread run other tasks in the meantime, so it's never idle.
+   * Each chunk is redacted into memory, so a chunk that runs to the end of the file, or far past
+   * the chunk size because there's no blank line to end it sooner, is redacted straight into the
+   * output file instead, once the chunks before it have been written out.
+   * @param inputChannel The channel for the input file.
+   * @param size The size of the input file.
+   * @param outputChannel The channel for the output file.
+   * @throws IOException Thrown if there is a problem reading from or writing to the files.
+   */
+  private void redactChunks(FileChannel inputChannel, long size, FileChannel outputChannel)
+      throws IOException {
+    int maxChunksInFlight = pool.getParallelism() * CHUNKS_IN_FLIGHT_PER_THREAD;
+    Deque<ChunkTask> chunksInFlight = new ArrayDeque<>();
+    long chunkStart = 0L;
+
+    while (chunkStart < size) {
+      long chunkEnd =
+          MappedFileRedactor.findBlankLineEnd(inputChannel, chunkStart + chunkSize, size);
+      if (chunkEnd == size || chunkEnd - chunkStart > MAXIMUM_CHUNK_GROWTH * chunkSize) {
+        while (!chunksInFlight.isEmpty()) {
+          writeChunk(chunksInFlight.removeFirst(), outputChannel);
+        }
+        fileRedactor.redact(inputChannel, chunkStart, chunkEnd, outputChannel);
+      } else {
+        if (chunksInFlight.size() >= maxChunksInFlight) {
+          writeChunk(chunksInFlight.removeFirst(), outputChannel);
+        }
+        ChunkTask chunk = new ChunkTask(inputChannel, chunkStart, chunkEnd);
+        chunk.fork();
+        chunksInFlight.addLast(chunk);
+      }
+      chunkStart = chunkEnd;
+    }
+  }
+
+  // Waits for the chunk to be redacted, then writes it out
+  private static void writeChunk(ChunkTask chunk, FileChannel outputChannel) throws IOException {
+    ByteBuffer redactedChunk = chunk.join();
+    while (redactedChunk.hasRemaining()) {
+      outputChannel.write(redactedChunk);
+    }
+  }
+
+  /**
+   * Redacts a range of the files, splitting it in half until there's one file for each task.
+   */
+  private class FilesTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Path inputDirectory;
+    private final Path outputDirectory;
+    private final List<Path> inputFiles;
+    private final int startIndex;
+    private final int endIndex;
+    private final LongAdder numberOfBytes;
+
+    // Initialises the task with the range of files (start inclusive, end exclusive) to redact
+    private FilesTask(
+        Path inputDirectory,
+        Path outputDirectory,
+        List<Path> inputFiles,
+        int startIndex,
+        int endIndex,
+        LongAdder numberOfBytes
+    ) {
+      this.inputDirectory = inputDirectory;
+      this.outputDirectory = outputDirectory;
+      this.inputFiles = inputFiles;
+      this.startIndex = startIndex;
+      this.endIndex = endIndex;
+      this.numberOfBytes = numberOfBytes;
+    }
+
+    @Override
+    protected void compute() {
+      if (endIndex - startIndex > 1) {
+        int middleIndex = (startIndex + endIndex) >>> 1;
+        invokeAll(
+            new FilesTask(
+                inputDirectory, outputDirectory, inputFiles, startIndex, middleIndex, numberOfBytes
+            ),
+            new FilesTask(
+                inputDirectory, outputDirectory, inputFiles, middleIndex, endIndex, numberOfBytes
+            )
+        );
+        return;
+      }
+
+      Path inputFile = inputFiles.get(startIndex);
+      Path outputFile = outputDirectory.resolve(inputDirectory.relativize(inputFile).toString());
+      try {
+        numberOfBytes.add(redactFile(inputFile, outputFile));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Redacts a chunk of a file into memory.
+   */
+  private class ChunkTask extends RecursiveTask<ByteBuffer> {
+    private static final long serialVersionUID = 1L;
+
+    private final FileChannel inputChannel;
+    private final long startPosition;
+    private final long endPosition;
+
+    // Initialises the task with the range of the file (start inclusive, end exclusive) to redact
+    private ChunkTask(FileChannel inputChannel, long startPosition, long endPosition) {
+      this.inputChannel = inputChannel;
+      this.startPosition = startPosition;
+      this.endPosition = endPosition;
+    }
+
+    @Override
+    protected ByteBuffer compute() {
+      // Redacting rarely changes the size of the text much
+      ByteArrayOutputStream redactedChunk = new ByteArrayOutputStream(
+          (int) Math.min(Integer.MAX_VALUE - 8, endPosition - startPosition)
+      );
+      try {
+        fileRedactor.redact(
+            inputChannel, startPosition, endPosition, Channels.newChannel(redactedChunk)
+        );
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return ByteBuffer.wrap(redactedChunk.toByteArray());
+    }
+  }
+
+  /**
+   * The stats for a directory that has been redacted.
+   */
+  public static class Result {
+    private final int numberOfFiles;
+    private final long numberOfBytes;
+    private final long elapsedNanos;
+
+    // Initialises the result with the stats for the job
+    private Result(int numberOfFiles, long numberOfBytes, long elapsedNanos) {
+      this.numberOfFiles = numberOfFiles;
+      this.numberOfBytes = numberOfBytes;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the number of files that were redacted.
+     * @return The number of files.
+     */
+    public int getNumberOfFiles() {
+      return numberOfFiles;
+    }
+
+    /**
+     * Gets the total size of the files that were redacted.
+     * @return The number of bytes.
+     */
+    public long getNumberOfBytes() {
+      return numberOfBytes;
+    }
+
+    /**
+     * Gets how long it took to redact the directory, including walking the tree.
+     * @return The elapsed time, in nanoseconds.
+     */
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+
+    /**
+     * Gets the rate at which the directory was redacted.
+     * @return The number of bytes redacted per second, or {@code 0} if no time elapsed.
+     */
+    public double getBytesPerSecond() {
+      return elapsedNanos == 0L ? 0.0 : numberOfBytes * 1e9 / elapsedNanos;
+    }
+  }
+}
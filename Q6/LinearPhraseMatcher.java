@@ -0,0 +1,130 @@
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A {@link PhraseMatcher} that tries each redacted phrase in turn at each index that is queried.
+ * Only the phrases that start with the character at the index are tried, but the cost still grows
+ * with the number of redacted phrases.
+ */
+public class LinearPhraseMatcher implements PhraseMatcher {
+
+  private final RedactionPlan plan;
+
+  /**
+   * Creates a new matcher for the redacted phrases in the plan's configuration.
+   * @param plan The plan for the configuration that specifies what phrases should be matched, and
+   * how.
+   * @throws NullPointerException Thrown if {@code plan == null}.
+   */
+  public LinearPhraseMatcher(RedactionPlan plan) throws NullPointerException {
+    this.plan = Objects.requireNonNull(plan, "Plan is null");
+  }
+
+  @Override
+  public Matches findMatches(CharSequence text) throws NullPointerException {
+    Objects.requireNonNull(text, "Text is null");
+    return index -> getMatchEndIndex(text, index);
+  }
+
+  /**
+   * Gets the end index of the first redacted phrase that matches at the given index.
+   * @param text The text to search.
+   * @param index The index at which the phrase should start.
+   * @return The end index (exclusive) of the match, or {@code -1} if no phrase matched.
+   */
+  private int getMatchEndIndex(CharSequence text, int index) {
+    // Loop through each phrase that could match the character at this index. This is called for
+    // almost every character, so the list is indexed rather than iterated to avoid creating an
+    // iterator each time
+    List<String> candidatePhrases =
+        plan.getRedactedPhrasesStartingWith(text.charAt(index));
+    for (int i = 0; i < candidatePhrases.size(); i++) {
+      // Check if the redacted phrase can be found at this index
+      int matchEndIndex = getMatchEndIndex(text, index, candidatePhrases.get(i));
+      if (matchEndIndex >= 0) {
+        return matchEndIndex;
+      }
+    }
+
+    // No phrase match was detected
+    return -1;
+  }
+
+  /**
+   * Determines the end index of the match between the text at the given index and the redacted
+   * phrase. The length of that match may be different to {@code redactedPhrase.length()} if the
+   * redacted phrase contains a space, and the matching phrase also contains whitespace but in a
+   * different quantity. For example, matching the redacted phrase "United Kingdom" in the text
+   * "United   Kingdom" would match all 16 characters.
+   * @param text The text to compare.
+   * @param index The index in the text at which the comparison should start.
+   * @param redactedPhrase The redacted phrase.
+   * @return The end index (exclusive) of the matched phrase, or {@code -1} if the phrase did not
+   * match.
+   */
+  int getMatchEndIndex(CharSequence text, int index, String redactedPhrase) {
+    int textIndex = index;
+    int phraseIndex = 0;
+
+    // Loop through the text from the start index and iteratively compare the characters in the text
+    // and the redacted phrase
+    while (textIndex < text.length() && phraseIndex < redactedPhrase.length()) {
+
+      char characterInText = text.charAt(textIndex);
+      char characterInPhrase = redactedPhrase.charAt(phraseIndex);
+
+      // Whitespace in phrases will always be replaced with single spaces for simplicity.
+      // Check if the character in the phrase is whitespace...
+      if (characterInPhrase == ' ') {
+
+        // If the character in the text is not also whitespace, then there's no match
+        if (!Character.isWhitespace(characterInText)) {
+          return -1;
+        }
+
+        // Continue through the text, skipping all other whitespace
+        for (; textIndex < text.length(); textIndex++) {
+          if (!Character.isWhitespace(text.charAt(textIndex))) {
+            break; // Found the first non-whitespace character so stop skipping elements
+          }
+        }
+      } else {
+        // Compare the characters
+        if (!charactersAreEqual(characterInText, characterInPhrase)) {
+          // Characters aren't equal to this isn't a match
+          return -1;
+        }
+        // The characters matched, so move onto the next ones
+        textIndex++;
+      }
+
+      phraseIndex++;
+    }
+
+    // Check if the phrase was encountered before the end of the text string
+    if (phraseIndex != redactedPhrase.length()) {
+      return -1;
+    }
+
+    // Ensure that word matching is not required, or that it's at the end of a word
+    if (!plan.getConfiguration().isFullWordMatching()
+        || textIndex >= text.length()
+        || plan.isWordSeparator(text.charAt(textIndex))
+    ) {
+      return textIndex;
+    }
+    return -1;
+  }
+
+  /**
+   * Checks if two characters are equal. If {@link RedactionConfiguration#isMatchRedactedWordCase()}
+   * is disabled, the characters will be matched case insensitively.
+   * @param char1 The first character.
+   * @param char2 The second character.
+   * @return {@code true} if the characters are equal according to the {@link
+   * RedactionConfiguration}.
+   */
+  private boolean charactersAreEqual(char char1, char char2) {
+    return plan.foldCase(char1) == plan.foldCase(char2);
+  }
+}
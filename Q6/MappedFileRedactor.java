@@ -0,0 +1,530 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * <p>Redacts a file paragraph by paragraph, without reading it in line by line. The input file is
+ * memory-mapped a window at a time and decoded into a reusable character buffer, and the results
+ * are encoded into a direct byte buffer and written straight to the output file's channel.</p>
+ * <p>Paragraphs are any body of text separated by a blank line, as for {@link CWK2Q6}. Each
+ * paragraph is fed to a {@link Redactor#startSession(Appendable) session} as it's decoded, and a
+ * new session is started after every blank line, so phrases that straddle a chunk boundary are
+ * still matched. If the redactor's session writes its results out as it goes, only its lookahead
+ * is held back, and the heap used is independent of the size of the file and of its paragraphs.
+ * Unlike {@link CWK2Q6}, the original line terminators are preserved exactly.</p>
+ */
+public class MappedFileRedactor {
+
+  // The default amount of the input file that is mapped into memory at once
+  private static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+  // The default number of characters that are decoded at once
+  private static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+  // The largest number of characters that the decoded text can grow to hold
+  private static final int MAXIMUM_CHUNK_SIZE = Integer.MAX_VALUE - 8;
+
+  // The number of bytes that are encoded before they are written to the output file
+  private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+  // The number of bytes that are read at once when looking for a blank line to split a file at
+  private static final int BOUNDARY_SEARCH_BUFFER_SIZE = 8 * 1024;
+
+  private final Redactor redactor;
+  private final Charset charset;
+  private final int windowSize;
+  private final int chunkSize;
+
+  /**
+   * Creates a new redactor that reads and writes files in the platform's default charset.
+   * @param redactor The redactor used to redact each paragraph.
+   * @throws NullPointerException Thrown if {@code redactor == null}.
+   */
+  public MappedFileRedactor(Redactor redactor) throws NullPointerException {
+    this(redactor, Charset.defaultCharset(), DEFAULT_WINDOW_SIZE, DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Creates a new redactor.
+   * @param redactor The redactor used to redact each paragraph.
+   * @param charset The charset of the input and output files.
+   * @param windowSize The number of bytes of the input file to map into memory at once.
+   * @param chunkSize The number of characters to decode at once. The buffer will only grow beyond
+   * this if a line of whitespace is longer.
+   * @throws NullPointerException Thrown if {@code redactor == null || charset == null}.
+   * @throws IllegalArgumentException Thrown if {@code windowSize < 1 || chunkSize < 1}.
+   */
+  public MappedFileRedactor(Redactor redactor, Charset charset, int windowSize, int chunkSize)
+      throws NullPointerException, IllegalArgumentException {
+    if (windowSize < 1) {
+      throw new IllegalArgumentException("Window size must be at least 1");
+    }
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("Chunk size must be at least 1");
+    }
+    this.redactor = Objects.requireNonNull(redactor, "Redactor is null");
+    this.charset = Objects.requireNonNull(charset, "Charset is null");
+    this.windowSize = windowSize;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Redacts the input file, writing the results to the output file. The output file is replaced if
+   * it already exists.
+   * @param inputFile The file to redact.
+   * @param outputFile The file that the results are written to.
+   * @throws IOException Thrown if there is a problem reading from or writing to the files.
+   */
+  public void redact(Path inputFile, Path outputFile) throws IOException {
+    try (
+        FileChannel inputChannel = FileChannel.open(inputFile, StandardOpenOption.READ);
+        ChannelWriter outputWriter = new ChannelWriter(
+            FileChannel.open(
+                outputFile,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING
+            ),
+            charset,
+            true
+        )
+    ) {
+      redact(inputChannel, 0L, inputChannel.size(), outputWriter);
+    }
+  }
+
+  /**
+   * Redacts part of the input file, writing the results to the output channel. The channel is left
+   * open once the results have all been written. The part is treated as if it were the whole file,
+   * so it should start at the start of a line and end after a blank line, or at the end of the
+   * file, as found by {@link #findBlankLineEnd(FileChannel, long, long)}.
+   * @param inputChannel The channel for the input file.
+   * @param startPosition The position in the file (inclusive) that the part starts at.
+   * @param endPosition The position in the file (exclusive) that the part ends at.
+   * @param outputChannel The channel that the results are written to.
+   * @throws IOException Thrown if there is a problem reading from the file or writing to the
+   * channel.
+   */
+  void redact(
+      FileChannel inputChannel,
+      long startPosition,
+      long endPosition,
+      WritableByteChannel outputChannel
+  ) throws IOException {
+    try (ChannelWriter outputWriter = new ChannelWriter(outputChannel, charset, false)) {
+      redact(inputChannel, startPosition, endPosition, outputWriter);
+    }
+  }
+
+  /**
+   * Decodes the input a window at a time, redacting each paragraph as it's decoded.
+   * @param inputChannel The channel for the input file.
+   * @param startPosition The position in the file (inclusive) to start redacting from.
+   * @param endPosition The position in the file (exclusive) to stop redacting at.
+   * @param outputWriter The destination for the redacted text.
+   * @throws IOException Thrown if there is a problem reading from or writing to the files.
+   */
+  private void redact(
+      FileChannel inputChannel, long startPosition, long endPosition, Writer outputWriter
+  ) throws IOException {
+    CharsetDecoder decoder = charset
+        .newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    DecodedText text = new DecodedText(chunkSize);
+    long windowStart = startPosition;
+    long windowLength = windowSize;
+    boolean lastWindow = false;
+
+    while (!lastWindow) {
+      windowLength = Math.min(windowLength, endPosition - windowStart);
+      MappedByteBuffer window =
+          inputChannel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+      lastWindow = windowStart + windowLength >= endPosition;
+
+      // Decode the whole window, processing the decoded text whenever the buffer fills up
+      while (decoder.decode(window, text.characters, lastWindow).isOverflow()) {
+        text.process(outputWriter, false);
+      }
+
+      // A character may be split across two windows, in which case its first bytes will remain in
+      // this window. Start the next window from these bytes. If the window is too small to hold a
+      // single character, the next one will have to be bigger
+      windowStart += window.position();
+      windowLength = window.position() > 0 ? windowSize : windowLength * 2;
+    }
+
+    while (decoder.flush(text.characters).isOverflow()) {
+      text.process(outputWriter, false);
+    }
+    text.process(outputWriter, true);
+  }
+
+  /**
+   * Checks whether files in a charset can be split by {@link #findBlankLineEnd(FileChannel, long,
+   * long)}, i.e. whether a line feed is a single byte that can't appear inside another character.
+   * @param charset The charset.
+   * @return {@code true} if the charset is UTF-8, US-ASCII or ISO-8859-1.
+   */
+  static boolean canSplitAtBlankLines(Charset charset) {
+    return charset.equals(StandardCharsets.UTF_8)
+        || charset.equals(StandardCharsets.US_ASCII)
+        || charset.equals(StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * Finds somewhere to split a file, i.e. the start of the first line after the first blank line
+   * that ends at or after the given position. Paragraphs never cross a blank line, so the parts
+   * either side can be redacted separately. Only lines that are blank in ASCII are considered,
+   * which is enough to find somewhere to split almost any text.
+   * @param inputChannel The channel for the file.
+   * @param position The position to start searching from.
+   * @param size The size of the file.
+   * @return The position after the blank line, or the size of the file if there are no more blank
+   * lines.
+   * @throws IOException Thrown if there is a problem reading from the file.
+   */
+  static long findBlankLineEnd(FileChannel inputChannel, long position, long size)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SEARCH_BUFFER_SIZE);
+    // The search may start part way through a line, so lines are only checked after the first
+    // line feed
+    boolean atStartOfLine = false;
+    boolean lineIsBlank = false;
+
+    for (long bufferStart = position; bufferStart < size; bufferStart += buffer.limit()) {
+      buffer.clear();
+      if (inputChannel.read(buffer, bufferStart) < 0) {
+        break;
+      }
+      buffer.flip();
+      for (int i = 0; i < buffer.limit(); i++) {
+        byte character = buffer.get(i);
+        if (character == '\n') {
+          if (atStartOfLine && lineIsBlank) {
+            return bufferStart + i + 1;
+          }
+          atStartOfLine = true;
+          lineIsBlank = true;
+        } else if (!isAsciiWhitespace(character)) {
+          lineIsBlank = false;
+        }
+      }
+    }
+    return size;
+  }
+
+  // Checks whether a byte is an ASCII whitespace character, other than a line feed
+  private static boolean isAsciiWhitespace(byte character) {
+    return character == ' ' || character == '\t' || character == '\r' || character == '\f'
+        || character == 0x0B;
+  }
+
+  /**
+   * Holds the decoded text that's waiting to be redacted, and tracks the paragraph and line that
+   * the text has been scanned up to.
+   */
+  private class DecodedText {
+
+    private CharBuffer characters;
+
+    // The session that's redacting the current paragraph, or null if not in a paragraph
+    private RedactorSession paragraphSession = null;
+
+    // The start of the text in the current paragraph that hasn't been fed to its session yet
+    private int paragraphStart = 0;
+
+    // The start of the next line that hasn't been scanned
+    private int lineStart = 0;
+
+    // Whether the line at lineStart started in an earlier chunk, and is known not to be blank
+    private boolean lineContinuesParagraph = false;
+
+    // Creates the buffer for the decoded text
+    private DecodedText(int capacity) {
+      this.characters = CharBuffer.allocate(capacity);
+    }
+
+    /**
+     * Writes out all of the blank lines in the buffer, and feeds the rest of the text to the
+     * session for the paragraph that it belongs to. Only an incomplete line that may still turn out
+     * to be blank is left over, and is moved to the start of the buffer so that it can be completed
+     * by the next chunk.
+     * @param outputWriter The destination for the redacted text.
+     * @param endOfInput Should be {@code true} if there is no more text to decode.
+     * @throws IOException Thrown if there is a problem writing the text.
+     */
+    private void process(Writer outputWriter, boolean endOfInput) throws IOException {
+      characters.flip();
+
+      // Iteratively scan every complete line
+      int lineEnd;
+      while ((lineEnd = findLineEnd(lineStart, endOfInput)) >= 0) {
+        int nextLineStart = skipLineTerminator(lineEnd);
+
+        // Check if the line is blank
+        if (!lineContinuesParagraph && isBlank(lineStart, lineEnd)) {
+          // Finish the paragraph (if there is one before this empty line)
+          finishParagraph(lineStart);
+
+          // Write out this line as is. The line may have whitespace content so preserve it
+          outputWriter.append(characters, lineStart, nextLineStart);
+        } else {
+          // It's not a blank line, so start a paragraph if one hasn't already been started
+          startParagraph(lineStart, outputWriter);
+        }
+
+        lineStart = nextLineStart;
+        lineContinuesParagraph = false;
+      }
+
+      // If the text didn't end with a line break, make sure the final line and paragraph are
+      // written out
+      if (endOfInput) {
+        if (!lineContinuesParagraph && isBlank(lineStart, characters.limit())) {
+          finishParagraph(lineStart);
+          outputWriter.append(characters, lineStart, characters.limit());
+        } else {
+          startParagraph(lineStart, outputWriter);
+          finishParagraph(characters.limit());
+        }
+        return;
+      }
+
+      // Once the incomplete line is known not to be blank, it belongs to the paragraph whatever
+      // follows it. A carriage return at the end may be the start of a "\r\n", so it's kept back
+      int incompleteLineEnd = characters.limit();
+      if (incompleteLineEnd > lineStart && characters.get(incompleteLineEnd - 1) == '\r') {
+        incompleteLineEnd--;
+      }
+      if (lineContinuesParagraph || !isBlank(lineStart, incompleteLineEnd)) {
+        startParagraph(lineStart, outputWriter);
+        lineStart = incompleteLineEnd;
+        lineContinuesParagraph = true;
+      }
+      feedParagraph(lineStart);
+
+      carryOver();
+    }
+
+    // Starts a session for a paragraph at the index, unless one has already been started
+    private void startParagraph(int index, Writer outputWriter) {
+      if (paragraphSession == null) {
+        paragraphSession = redactor.startSession(outputWriter);
+        paragraphStart = index;
+      }
+    }
+
+    // Feeds the current paragraph's session with the paragraph's text up to the index
+    private void feedParagraph(int paragraphEnd) throws IOException {
+      if (paragraphSession != null && paragraphEnd > paragraphStart) {
+        paragraphSession.feed(characters.subSequence(paragraphStart, paragraphEnd));
+        paragraphStart = paragraphEnd;
+      }
+    }
+
+    /**
+     * Feeds the rest of the current paragraph, if there is one, to its session and finishes it, so
+     * that the rest of the results are written out.
+     * @param paragraphEnd The end index (exclusive) of the paragraph.
+     * @throws IOException Thrown if there is a problem writing the text.
+     */
+    private void finishParagraph(int paragraphEnd) throws IOException {
+      if (paragraphSession != null) {
+        feedParagraph(paragraphEnd);
+        paragraphSession.finish();
+        paragraphSession = null;
+      }
+    }
+
+    /**
+     * Moves the incomplete line to the start of the buffer, growing the buffer if there's no space
+     * left to decode into. The paragraph's text has already been fed to its session, so only a line
+     * that is all whitespace so far can be this long.
+     * @throws IOException Thrown if the buffer can't grow any larger.
+     */
+    private void carryOver() throws IOException {
+      characters.position(lineStart);
+      characters.compact();
+      lineStart = 0;
+      paragraphStart = 0;
+
+      // Growing before the buffer is completely full stops the line from being rescanned over and
+      // over again. There must also always be space for a surrogate pair, or the decoder can't make
+      // progress
+      if (characters.remaining() < Math.max(2, characters.capacity() / 2)) {
+        if (characters.capacity() >= MAXIMUM_CHUNK_SIZE) {
+          throw new IOException("Line of whitespace is too long to decode");
+        }
+        CharBuffer grownCharacters = CharBuffer.allocate(
+            (int) Math.min(2L * characters.capacity() + 2L, MAXIMUM_CHUNK_SIZE)
+        );
+        characters.flip();
+        grownCharacters.put(characters);
+        characters = grownCharacters;
+      }
+    }
+
+    /**
+     * Finds the end of the line that starts at the given index.
+     * @param lineStart The start of the line.
+     * @param endOfInput Should be {@code true} if there is no more text to decode.
+     * @return The index of the line terminator, or of the end of the buffer if this is the last
+     * line of the input, or {@code -1} if the line isn't complete.
+     */
+    private int findLineEnd(int lineStart, boolean endOfInput) {
+      for (int i = lineStart; i < characters.limit(); i++) {
+        char character = characters.get(i);
+        if (character == '\n') {
+          return i;
+        }
+        if (character == '\r') {
+          // Without the next character, it's not known whether this is a "\r\n" terminator
+          return i + 1 < characters.limit() || endOfInput ? i : -1;
+        }
+      }
+      return -1;
+    }
+
+    // Gets the index after the line terminator at the given index
+    private int skipLineTerminator(int lineEnd) {
+      if (lineEnd >= characters.limit()) {
+        return lineEnd;
+      }
+      if (characters.get(lineEnd) == '\r'
+          && lineEnd + 1 < characters.limit()
+          && characters.get(lineEnd + 1) == '\n'
+      ) {
+        return lineEnd + 2;
+      }
+      return lineEnd + 1;
+    }
+
+    // Checks if the characters between the indices are all whitespace
+    private boolean isBlank(int startIndex, int endIndex) {
+      for (int i = startIndex; i < endIndex; i++) {
+        if (!Character.isWhitespace(characters.get(i))) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * A writer that encodes text into a direct byte buffer, writing the buffer to a channel whenever
+   * it fills up.
+   */
+  private static class ChannelWriter extends Writer {
+
+    private final WritableByteChannel channel;
+    private final boolean closeChannel;
+    private final CharsetEncoder encoder;
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+
+    // A high surrogate left over from the previous write, waiting for its low surrogate
+    private final CharBuffer leftover = CharBuffer.allocate(2);
+
+    // Creates a writer for the channel, which may be left open when the writer is closed
+    private ChannelWriter(WritableByteChannel channel, Charset charset, boolean closeChannel) {
+      this.channel = channel;
+      this.closeChannel = closeChannel;
+      this.encoder = charset
+          .newEncoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public void write(char[] characters, int offset, int length) throws IOException {
+      write(CharBuffer.wrap(characters, offset, length));
+    }
+
+    @Override
+    public Writer append(CharSequence text, int start, int end) throws IOException {
+      // Encode the characters directly, rather than going via the string that Writer would create
+      write(CharBuffer.wrap(text, start, end));
+      return this;
+    }
+
+    /**
+     * Encodes the characters, carrying over any incomplete surrogate pair to the next write.
+     * @param input The characters to write.
+     * @throws IOException Thrown if there is a problem writing to the channel.
+     */
+    private void write(CharBuffer input) throws IOException {
+      // Complete the surrogate pair from the previous write
+      if (leftover.position() > 0 && input.hasRemaining()) {
+        leftover.put(input.get()).flip();
+        encode(leftover, false);
+        leftover.clear();
+      }
+
+      encode(input, false);
+
+      // Anything that couldn't be encoded must be the first half of a surrogate pair
+      if (input.hasRemaining()) {
+        leftover.put(input);
+      }
+    }
+
+    /**
+     * Encodes the characters into the byte buffer, writing it out whenever it fills up.
+     * @param input The characters to encode.
+     * @param endOfInput Should be {@code true} if there are no more characters to encode.
+     * @throws IOException Thrown if there is a problem writing to the channel.
+     */
+    private void encode(CharBuffer input, boolean endOfInput) throws IOException {
+      CoderResult result;
+      while ((result = encoder.encode(input, bytes, endOfInput)).isOverflow()) {
+        writeBytes();
+      }
+      if (result.isError()) {
+        result.throwException();
+      }
+    }
+
+    // Writes the contents of the byte buffer out to the channel
+    private void writeBytes() throws IOException {
+      bytes.flip();
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+      bytes.clear();
+    }
+
+    @Override
+    public void flush() throws IOException {
+      writeBytes();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        leftover.flip();
+        encode(leftover, true);
+        while (encoder.flush(bytes).isOverflow()) {
+          writeBytes();
+        }
+        writeBytes();
+      } finally {
+        if (closeChannel) {
+          channel.close();
+        }
+      }
+    }
+  }
+}
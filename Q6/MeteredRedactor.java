@@ -0,0 +1,132 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Objects;
+
+/**
+ * A {@link Redactor} that records each paragraph it redacts in a set of {@link RedactionMetrics},
+ * before delegating the redaction itself to another redactor. The number of matches can only be
+ * recorded by the underlying redactor, so it should be given the same metrics as its {@link
+ * RedactionListener}.
+ */
+public class MeteredRedactor implements Redactor {
+
+  private final Redactor redactor;
+  private final RedactionMetrics metrics;
+
+  /**
+   * Creates a new redactor that records the redactions of another.
+   * @param redactor The redactor that performs the redactions.
+   * @param metrics The metrics that each redaction is recorded in.
+   * @throws NullPointerException Thrown if {@code redactor == null || metrics == null}.
+   */
+  public MeteredRedactor(Redactor redactor, RedactionMetrics metrics)
+      throws NullPointerException {
+    this.redactor = Objects.requireNonNull(redactor, "Redactor is null");
+    this.metrics = Objects.requireNonNull(metrics, "Metrics are null");
+  }
+
+  @Override
+  public String redact(String text) {
+    long start = System.nanoTime();
+    String result = redactor.redact(text);
+    long nanos = System.nanoTime() - start;
+
+    metrics.paragraphRedacted(
+        RedactionMetrics.utf8Length(text, 0, text.length()),
+        RedactionMetrics.utf8Length(result, 0, result.length()),
+        nanos
+    );
+    return result;
+  }
+
+  @Override
+  public void redact(CharSequence text, Appendable output) throws IOException {
+    CountingWriter countingOutput = new CountingWriter(output);
+
+    long start = System.nanoTime();
+    redactor.redact(text, countingOutput);
+    long nanos = System.nanoTime() - start;
+
+    metrics.paragraphRedacted(
+        RedactionMetrics.utf8Length(text, 0, text.length()), countingOutput.bytes, nanos
+    );
+  }
+
+  /**
+   * Starts a session on the underlying redactor, recording the text fed to it as a single paragraph
+   * once it's finished.
+   * @param output The destination for the result of the redaction.
+   * @return The session.
+   * @throws NullPointerException Thrown if {@code output == null}.
+   */
+  @Override
+  public RedactorSession startSession(Appendable output) throws NullPointerException {
+    CountingWriter countingOutput =
+        new CountingWriter(Objects.requireNonNull(output, "Output is null"));
+    RedactorSession session = redactor.startSession(countingOutput);
+    return new RedactorSession() {
+      private long bytesIn = 0L;
+      private long nanos = 0L;
+
+      @Override
+      public void feed(CharSequence text) throws IOException, IllegalStateException {
+        long start = System.nanoTime();
+        session.feed(text);
+        nanos += System.nanoTime() - start;
+        bytesIn += RedactionMetrics.utf8Length(text, 0, text.length());
+      }
+
+      @Override
+      public void finish() throws IOException, IllegalStateException {
+        long start = System.nanoTime();
+        session.finish();
+        nanos += System.nanoTime() - start;
+        metrics.paragraphRedacted(bytesIn, countingOutput.bytes, nanos);
+      }
+    };
+  }
+
+  /**
+   * Passes characters through to an output, counting their size as it goes. This is a writer so
+   * that redactors can still write to it in bulk.
+   */
+  private static class CountingWriter extends Writer {
+
+    private final Appendable output;
+    private long bytes = 0L;
+
+    // Creates a writer that passes characters through to the output
+    private CountingWriter(Appendable output) {
+      this.output = output;
+    }
+
+    @Override
+    public void write(char[] characters, int offset, int length) throws IOException {
+      CharBuffer buffer = CharBuffer.wrap(characters, offset, length);
+      bytes += RedactionMetrics.utf8Length(buffer, 0, length);
+      if (output instanceof Writer) {
+        ((Writer) output).write(characters, offset, length);
+      } else {
+        output.append(buffer);
+      }
+    }
+
+    @Override
+    public Writer append(CharSequence text, int start, int end) throws IOException {
+      bytes += RedactionMetrics.utf8Length(text, start, end);
+      output.append(text, start, end);
+      return this;
+    }
+
+    @Override
+    public void flush() {
+      // The output is flushed by its owner
+    }
+
+    @Override
+    public void close() {
+      // The output is closed by its owner
+    }
+  }
+}
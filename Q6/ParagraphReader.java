@@ -0,0 +1,92 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * <p>Splits text into paragraphs, where a paragraph is any body of text separated by a blank line.
+ * Redacting a file a line at a time would break up sentences that wrap over several lines, while
+ * redacting it all at once would pull it all into memory, so the text is redacted paragraph by
+ * paragraph instead.</p>
+ * <p>Every part of the program that splits text into paragraphs uses this class, so that
+ * sentences start in the same places whether the text is being redacted, indexed or
+ * benchmarked.</p>
+ * <p>The text is read as a sequence of paragraphs and blank lines. Each line, including the last,
+ * is followed by the platform's line separator. Blank lines may contain whitespace, which is
+ * kept.</p>
+ */
+public class ParagraphReader {
+
+  private final BufferedReader reader;
+  private String nextBlankLine = null;
+  private boolean blankLine = false;
+
+  /**
+   * Creates a new reader. The underlying reader isn't closed by this class.
+   * @param reader The source of the text.
+   * @throws NullPointerException Thrown if {@code reader == null}.
+   */
+  public ParagraphReader(BufferedReader reader) throws NullPointerException {
+    this.reader = Objects.requireNonNull(reader, "Reader is null");
+  }
+
+  /**
+   * Reads the next paragraph or blank line. {@link #isBlankLine()} says which it was.
+   * @return The paragraph or blank line, or {@code null} if the end of the text has been reached.
+   * @throws IOException Thrown if there is a problem reading the text.
+   */
+  public String read() throws IOException {
+    // The blank line that ended the last paragraph
+    if (nextBlankLine != null) {
+      String line = nextBlankLine;
+      nextBlankLine = null;
+      blankLine = true;
+      return line;
+    }
+
+    StringBuilder paragraphBuilder = null;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.isBlank()) {
+        // Return the paragraph before this line, if there is one, and the line itself next time
+        String blankLineWithSeparator = line + System.lineSeparator();
+        if (paragraphBuilder != null) {
+          nextBlankLine = blankLineWithSeparator;
+          break;
+        }
+        blankLine = true;
+        return blankLineWithSeparator;
+      }
+
+      // It's not a blank line. If we haven't started building a paragraph, start now
+      if (paragraphBuilder == null) {
+        paragraphBuilder = new StringBuilder();
+      }
+      paragraphBuilder.append(line).append(System.lineSeparator());
+    }
+
+    blankLine = false;
+    return paragraphBuilder == null ? null : paragraphBuilder.toString();
+  }
+
+  /**
+   * Reads the next paragraph, skipping any blank lines before it.
+   * @return The paragraph, or {@code null} if the end of the text has been reached.
+   * @throws IOException Thrown if there is a problem reading the text.
+   */
+  public String readParagraph() throws IOException {
+    String text;
+    do {
+      text = read();
+    } while (text != null && blankLine);
+    return text;
+  }
+
+  /**
+   * Determines whether the text last returned by {@link #read()} was a blank line rather than a
+   * paragraph.
+   * @return {@code true} if it was a blank line.
+   */
+  public boolean isBlankLine() {
+    return blankLine;
+  }
+}
@@ -0,0 +1,141 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p>Redacts text paragraph by paragraph, using a pool of worker threads. Paragraphs are any body
+ * of text separated by a blank line, and are redacted independently of each other.</p>
+ * <p>The pipeline has three stages. The calling thread reads the paragraphs and submits them to the
+ * workers, the workers redact them, and a dedicated writer thread writes the results out in the
+ * order in which they were read. The number of paragraphs that can be in flight at once is
+ * bounded, so the reader waits for the writer to catch up rather than pulling the whole input into
+ * memory.</p>
+ */
+public class ParagraphRedactionPipeline {
+
+  // Marks the end of the input for the writer
+  private static final Future<String> END_OF_INPUT = CompletableFuture.completedFuture(null);
+
+  private final Redactor redactor;
+  private final int numberOfWorkers;
+  private final int maxParagraphsInFlight;
+
+  /**
+   * Creates a new pipeline, allowing up to four paragraphs per worker to be in flight at once.
+   * @param redactor The redactor used to redact each paragraph. This must be safe to use from
+   * multiple threads.
+   * @param numberOfWorkers The number of threads that should redact paragraphs.
+   * @throws NullPointerException Thrown if {@code redactor == null}.
+   * @throws IllegalArgumentException Thrown if {@code numberOfWorkers < 1}.
+   */
+  public ParagraphRedactionPipeline(Redactor redactor, int numberOfWorkers)
+      throws NullPointerException, IllegalArgumentException {
+    this(redactor, numberOfWorkers, numberOfWorkers * 4);
+  }
+
+  /**
+   * Creates a new pipeline.
+   * @param redactor The redactor used to redact each paragraph. This must be safe to use from
+   * multiple threads.
+   * @param numberOfWorkers The number of threads that should redact paragraphs.
+   * @param maxParagraphsInFlight The maximum number of paragraphs that may have been read but not
+   * yet written. This bounds the memory used by the pipeline.
+   * @throws NullPointerException Thrown if {@code redactor == null}.
+   * @throws IllegalArgumentException Thrown if {@code numberOfWorkers < 1 ||
+   * maxParagraphsInFlight < 1}.
+   */
+  public ParagraphRedactionPipeline(
+      Redactor redactor, int numberOfWorkers, int maxParagraphsInFlight
+  ) throws NullPointerException, IllegalArgumentException {
+    if (numberOfWorkers < 1) {
+      throw new IllegalArgumentException("Number of workers must be at least 1");
+    }
+    if (maxParagraphsInFlight < 1) {
+      throw new IllegalArgumentException("Max paragraphs in flight must be at least 1");
+    }
+    this.redactor = Objects.requireNonNull(redactor, "Redactor is null");
+    this.numberOfWorkers = numberOfWorkers;
+    this.maxParagraphsInFlight = maxParagraphsInFlight;
+  }
+
+  /**
+   * Redacts all of the text from the reader, writing the results out to the writer.
+   * @param textReader The source of the text.
+   * @param outputWriter The destination for the redacted text.
+   * @throws IOException Thrown if there is a problem reading, writing or redacting the text.
+   */
+  public void run(BufferedReader textReader, Writer outputWriter) throws IOException {
+    BlockingQueue<Future<String>> pendingParagraphs =
+        new ArrayBlockingQueue<>(maxParagraphsInFlight);
+    ExecutorService workers = Executors.newFixedThreadPool(numberOfWorkers);
+    ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    try {
+      Future<Void> writerResult =
+          writer.submit(() -> writeParagraphs(pendingParagraphs, outputWriter));
+      readParagraphs(textReader, workers, pendingParagraphs, writerResult);
+      WriterThreads.put(END_OF_INPUT, pendingParagraphs, writerResult);
+      WriterThreads.getResult(writerResult);
+    } finally {
+      workers.shutdownNow();
+      writer.shutdownNow();
+    }
+  }
+
+  /**
+   * Reads the paragraphs from the text, submitting each to the workers. Blank lines are passed
+   * straight through to the writer.
+   * @param textReader The source of the text.
+   * @param workers The workers that redact the paragraphs.
+   * @param pendingParagraphs The queue of paragraphs waiting to be written.
+   * @param writerResult The result of the writer.
+   * @throws IOException Thrown if there is a problem reading the text, or if the writer has failed.
+   */
+  private void readParagraphs(
+      BufferedReader textReader,
+      ExecutorService workers,
+      BlockingQueue<Future<String>> pendingParagraphs,
+      Future<Void> writerResult
+  ) throws IOException {
+    ParagraphReader paragraphReader = new ParagraphReader(textReader);
+    String text;
+    while ((text = paragraphReader.read()) != null) {
+      // Write out blank lines as they are. They may have whitespace content so preserve it
+      Future<String> result = paragraphReader.isBlankLine()
+          ? CompletableFuture.completedFuture(text)
+          : submit(text, workers);
+      WriterThreads.put(result, pendingParagraphs, writerResult);
+    }
+  }
+
+  // Submits the paragraph for redaction
+  private Future<String> submit(String paragraph, ExecutorService workers) {
+    return workers.submit(() -> redactor.redact(paragraph));
+  }
+
+  /**
+   * Writes out each of the paragraphs in the order in which they were queued, waiting for each to
+   * be redacted if necessary.
+   * @param pendingParagraphs The queue of paragraphs waiting to be written.
+   * @param outputWriter The destination for the redacted text.
+   * @return Nothing.
+   * @throws IOException Thrown if there is a problem redacting or writing a paragraph.
+   * @throws InterruptedException Thrown if the writer is interrupted.
+   */
+  private Void writeParagraphs(
+      BlockingQueue<Future<String>> pendingParagraphs, Writer outputWriter
+  ) throws IOException, InterruptedException {
+    Future<String> paragraph;
+    while ((paragraph = pendingParagraphs.take()) != END_OF_INPUT) {
+      outputWriter.write(WriterThreads.getResult(paragraph));
+    }
+    return null;
+  }
+}
@@ -0,0 +1,51 @@
+import java.util.Objects;
+
+/**
+ * Responsible for locating the redacted phrases, as defined by a {@link RedactionConfiguration},
+ * within an item of text.
+ */
+public interface PhraseMatcher {
+
+  /**
+   * Finds the redacted phrases in the given text. The text to the right of any index that is
+   * queried on the result must not have been modified since this method was invoked.
+   * @param text The text to search.
+   * @return The matches that were found in the text.
+   * @throws NullPointerException Thrown if {@code text == null}.
+   */
+  Matches findMatches(CharSequence text) throws NullPointerException;
+
+  /**
+   * Finds the redacted phrases in the given text, using the scratch buffers for any working space
+   * that's required rather than allocating it. The result is only valid until the scratch buffers
+   * are next used.
+   * @param text The text to search.
+   * @param scratchBuffers The scratch buffers.
+   * @return The matches that were found in the text.
+   * @throws NullPointerException Thrown if {@code text == null || scratchBuffers == null}.
+   */
+  default Matches findMatches(CharSequence text, ScratchBuffers scratchBuffers)
+      throws NullPointerException {
+    Objects.requireNonNull(scratchBuffers, "Scratch buffers are null");
+    return findMatches(text);
+  }
+
+  /**
+   * The redacted phrases that were found in an item of text.
+   */
+  interface Matches {
+
+    /**
+     * Gets the end index of the longest redacted phrase that starts at the given index. If full
+     * word matching is enabled, the phrase must also end at a word separator or at the end of the
+     * text. No check is made as to whether the index is at the start of a word - this is the
+     * responsibility of the caller.
+     * @param index The index at which the phrase should start.
+     * @return The end index (exclusive) of the match, or {@code -1} if no phrase starts at the
+     * index.
+     */
+    int getMatchEndIndex(int index);
+
+  }
+
+}
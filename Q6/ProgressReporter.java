@@ -0,0 +1,58 @@
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * A runnable class that prints the progress of a redaction job to the terminal, in place of a
+ * {@link Spinner}, so that the user can tell whether a slow job is still working.
+ */
+public class ProgressReporter implements Runnable {
+
+  private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+  private final String prefix;
+  private final RedactionMetrics metrics;
+
+  /**
+   * Creates a new progress reporter.
+   * @param prefix The text that will appear before the progress. If this is {@code null}, no text
+   * will appear before the progress.
+   * @param metrics The metrics for the redaction job.
+   * @throws NullPointerException Thrown if {@code metrics == null}.
+   */
+  public ProgressReporter(String prefix, RedactionMetrics metrics) throws NullPointerException {
+    this.prefix = prefix == null ? "" : prefix;
+    this.metrics = Objects.requireNonNull(metrics, "Metrics are null");
+  }
+
+  @Override
+  public void run() {
+    boolean running = true;
+    long previousBytes = 0L;
+    long previousNanos = System.nanoTime();
+
+    // Keep printing until the thread terminates
+    while (running) {
+      // Pause for a quarter of a second
+      try {
+        Thread.sleep(250L);
+      } catch (InterruptedException e) {
+        running = false;
+      }
+
+      // The current rate is measured over the last interval, so that stalls show up straight away
+      long bytes = metrics.getBytesIn();
+      long nanos = System.nanoTime();
+      double currentRate =
+          (bytes - previousBytes) / BYTES_PER_MEGABYTE / ((nanos - previousNanos) / 1e9);
+      previousBytes = bytes;
+      previousNanos = nanos;
+
+      System.out.print(String.format(
+          Locale.ROOT,
+          "\r%s%.1f MB redacted, %d paragraphs (%.2f MB/s, %.2f MB/s average)   ",
+          prefix, bytes / BYTES_PER_MEGABYTE, metrics.getParagraphs(), currentRate,
+          metrics.getMegabytesPerSecond()
+      ));
+    }
+  }
+}
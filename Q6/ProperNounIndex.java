@@ -0,0 +1,278 @@
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Counts how each word is capitalised across a whole document, so that proper nouns can be told
+ * apart from words that just happen to be capitalised. This is the first pass of a two pass
+ * redaction: the index is built from all of the text, and then given to a redactor with {@link
+ * SimpleTextRedactor#withProperNounIndex(ProperNounIndex)} to redact the text.</p>
+ * <p>For each word, the index counts the number of times that it's capitalised at the start of a
+ * sentence, the number of times that it's capitalised part way through a sentence and the number
+ * of times that it's in lowercase. A capitalised word at the start of a sentence says nothing
+ * about whether it's a proper noun, so a word is only treated as a proper noun if it's capitalised
+ * in most of the places where it appears part way through a sentence. "Anna" is then redacted
+ * even at the start of a sentence, while "The" is not, and neither is a title such as "Count" in a
+ * text that more often talks about "the count". Words are capitalised in the same sense as {@link
+ * ProperNounDetection#CAPITALISED}.</p>
+ * <p>Each text that's added is treated as starting a new sentence, as for {@link
+ * Redactor#redact(String)}. Texts can be added from any number of threads at once. Each word's
+ * counts are {@link LongAdder}s, which spread contended updates over several cells rather than
+ * making the threads take turns, so the counting scales with the number of threads. The index
+ * should be complete before it's used for redaction.</p>
+ * <p>This class is thread safe.</p>
+ */
+public class ProperNounIndex {
+
+  // The fraction of a word's appearances part way through a sentence that must be capitalised,
+  // by default, for the word to be a proper noun
+  private static final double DEFAULT_MINIMUM_CAPITALISED_RATIO = 0.5;
+
+  // The number of texts below which a task indexes its texts itself rather than splitting them
+  private static final int TEXTS_PER_TASK = 64;
+
+  private final RedactionPlan plan;
+  private final double minimumCapitalisedRatio;
+  private final ConcurrentHashMap<String, WordCounts> words = new ConcurrentHashMap<>();
+
+  /**
+   * Creates a new, empty index that treats a word as a proper noun if it's capitalised in more than
+   * half of the places where it appears part way through a sentence. The plan for the
+   * configuration is retrieved from {@link RedactionPlanCache#getDefault()}.
+   * @param configuration The configuration that specifies which characters separate words.
+   * @throws NullPointerException Thrown if {@code configuration == null}.
+   */
+  public ProperNounIndex(RedactionConfiguration configuration) throws NullPointerException {
+    this(
+        RedactionPlanCache.getDefault().getPlan(
+            Objects.requireNonNull(configuration, "Configuration is null")
+        )
+    );
+  }
+
+  /**
+   * Creates a new, empty index that treats a word as a proper noun if it's capitalised in more than
+   * half of the places where it appears part way through a sentence.
+   * @param plan The plan for the configuration that specifies which characters separate words.
+   * @throws NullPointerException Thrown if {@code plan == null}.
+   */
+  public ProperNounIndex(RedactionPlan plan) throws NullPointerException {
+    this(plan, DEFAULT_MINIMUM_CAPITALISED_RATIO);
+  }
+
+  /**
+   * Creates a new, empty index.
+   * @param plan The plan for the configuration that specifies which characters separate words.
+   * @param minimumCapitalisedRatio A word is treated as a proper noun if it's capitalised in more
+   * than this fraction of the places where it appears part way through a sentence.
+   * @throws NullPointerException Thrown if {@code plan == null}.
+   * @throws IllegalArgumentException Thrown if {@code minimumCapitalisedRatio < 0 ||
+   * minimumCapitalisedRatio >= 1}.
+   */
+  public ProperNounIndex(RedactionPlan plan, double minimumCapitalisedRatio)
+      throws NullPointerException, IllegalArgumentException {
+    if (!(minimumCapitalisedRatio >= 0.0 && minimumCapitalisedRatio < 1.0)) {
+      throw new IllegalArgumentException("Minimum capitalised ratio must be in the range [0, 1)");
+    }
+    this.plan = Objects.requireNonNull(plan, "Plan is null");
+    this.minimumCapitalisedRatio = minimumCapitalisedRatio;
+  }
+
+  /**
+   * Counts the words in the text. The text is treated as starting a new sentence.
+   * @param text The text.
+   * @throws NullPointerException Thrown if {@code text == null}.
+   */
+  public void addText(CharSequence text) throws NullPointerException {
+    Objects.requireNonNull(text, "Text is null");
+    SentenceTracker sentenceTracker = new SentenceTracker();
+    int length = text.length();
+    int index = 0;
+
+    while (index < length) {
+      // Move to the start of the next word
+      while (index < length && plan.isWordSeparator(text.charAt(index))) {
+        sentenceTracker.advance(text.charAt(index++), plan);
+      }
+      if (index >= length) {
+        break;
+      }
+
+      boolean atStartOfSentence = sentenceTracker.isAtStartOfSentence(plan);
+      int startIndex = index;
+      boolean restIsLowercase = true;
+      sentenceTracker.advance(text.charAt(index++), plan);
+      while (index < length && !plan.isWordSeparator(text.charAt(index))) {
+        char character = text.charAt(index);
+        if (Character.isAlphabetic(character) && Character.isUpperCase(character)) {
+          restIsLowercase = false;
+        }
+        sentenceTracker.advance(character, plan);
+        index++;
+      }
+
+      // Words with capitals part way through, such as acronyms, aren't counted either way
+      if (restIsLowercase) {
+        countWord(text, startIndex, index, atStartOfSentence);
+      }
+    }
+  }
+
+  // Counts a word that is all in lowercase after its first character
+  private void countWord(
+      CharSequence text, int startIndex, int endIndex, boolean atStartOfSentence
+  ) {
+    char firstCharacter = text.charAt(startIndex);
+    if (Character.isLowerCase(firstCharacter)) {
+      getOrCreateCounts(text, startIndex, endIndex).lowercase.increment();
+    } else if (Character.isUpperCase(firstCharacter) && endIndex - startIndex > 1) {
+      // Single capital letters such as "I" are never proper nouns
+      WordCounts counts = getOrCreateCounts(text, startIndex, endIndex);
+      if (atStartOfSentence) {
+        counts.capitalisedAtStartOfSentence.increment();
+      } else {
+        counts.capitalisedMidSentence.increment();
+      }
+    }
+  }
+
+  // Gets the counts for a word, adding it to the index if this is its first appearance
+  private WordCounts getOrCreateCounts(CharSequence text, int startIndex, int endIndex) {
+    String key = toKey(text.subSequence(startIndex, endIndex));
+    // Almost every word has been seen before, so try a plain read before trying to insert
+    WordCounts counts = words.get(key);
+    return counts == null ? words.computeIfAbsent(key, word -> new WordCounts()) : counts;
+  }
+
+  /**
+   * Counts the words in each of the texts, splitting the texts between the threads of the pool.
+   * Each text is treated as starting a new sentence.
+   * @param texts The texts.
+   * @param pool The pool whose threads count the words.
+   * @throws NullPointerException Thrown if {@code texts == null || pool == null}, or any of the
+   * texts are {@code null}.
+   */
+  public void addTexts(List<? extends CharSequence> texts, ForkJoinPool pool)
+      throws NullPointerException {
+    Objects.requireNonNull(texts, "Texts are null");
+    Objects.requireNonNull(pool, "Pool is null");
+    if (!texts.isEmpty()) {
+      pool.invoke(new IndexTask(texts, 0, texts.size()));
+    }
+  }
+
+  /**
+   * Checks whether a word is a proper noun, i.e. whether it has appeared part way through a
+   * sentence and was capitalised in more than the minimum fraction of those appearances.
+   * @param word The word, in any case.
+   * @return {@code true} if the word is a proper noun.
+   * @throws NullPointerException Thrown if {@code word == null}.
+   */
+  public boolean isProperNoun(CharSequence word) throws NullPointerException {
+    WordCounts counts = getCounts(word);
+    if (counts == null) {
+      return false;
+    }
+    long capitalised = counts.getCapitalisedMidSentence();
+    return capitalised > 0L
+        && capitalised > minimumCapitalisedRatio * (capitalised + counts.getLowercase());
+  }
+
+  /**
+   * Gets the counts for a word.
+   * @param word The word, in any case.
+   * @return The counts, or {@code null} if the word hasn't been counted.
+   * @throws NullPointerException Thrown if {@code word == null}.
+   */
+  public WordCounts getCounts(CharSequence word) throws NullPointerException {
+    return words.get(toKey(Objects.requireNonNull(word, "Word is null")));
+  }
+
+  /**
+   * Gets the number of different words that have been counted, ignoring case.
+   * @return The number of words.
+   */
+  public int getNumberOfWords() {
+    return words.size();
+  }
+
+  // Words are counted regardless of case
+  private static String toKey(CharSequence word) {
+    return word.toString().toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Counts the words in a range of the texts, splitting it in half until it's small enough for one
+   * thread.
+   */
+  private class IndexTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final List<? extends CharSequence> texts;
+    private final int startIndex;
+    private final int endIndex;
+
+    // Initialises the task with the range of texts (start inclusive, end exclusive) to count
+    private IndexTask(List<? extends CharSequence> texts, int startIndex, int endIndex) {
+      this.texts = texts;
+      this.startIndex = startIndex;
+      this.endIndex = endIndex;
+    }
+
+    @Override
+    protected void compute() {
+      if (endIndex - startIndex > TEXTS_PER_TASK) {
+        int middleIndex = (startIndex + endIndex) >>> 1;
+        invokeAll(
+            new IndexTask(texts, startIndex, middleIndex),
+            new IndexTask(texts, middleIndex, endIndex)
+        );
+        return;
+      }
+
+      for (int i = startIndex; i < endIndex; i++) {
+        addText(texts.get(i));
+      }
+    }
+  }
+
+  /**
+   * The number of times that a word has appeared in each form.
+   */
+  public static class WordCounts {
+    private final LongAdder capitalisedAtStartOfSentence = new LongAdder();
+    private final LongAdder capitalisedMidSentence = new LongAdder();
+    private final LongAdder lowercase = new LongAdder();
+
+    // Counts are only created by the index
+    private WordCounts() {}
+
+    /**
+     * Gets the number of times that the word was capitalised at the start of a sentence.
+     * @return The number of appearances.
+     */
+    public long getCapitalisedAtStartOfSentence() {
+      return capitalisedAtStartOfSentence.sum();
+    }
+
+    /**
+     * Gets the number of times that the word was capitalised part way through a sentence.
+     * @return The number of appearances.
+     */
+    public long getCapitalisedMidSentence() {
+      return capitalisedMidSentence.sum();
+    }
+
+    /**
+     * Gets the number of times that the word was in lowercase.
+     * @return The number of appearances.
+     */
+    public long getLowercase() {
+      return lowercase.sum();
+    }
+  }
+}
@@ -0,0 +1,248 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * <p>Measures the throughput of the redaction engine, so that regressions can be caught before
+ * they reach a release.</p>
+ * <p>The text in "warandpeace.txt" is redacted paragraph by paragraph, as {@link CWK2Q6} does,
+ * using the phrases in "redact.txt" as well as generated dictionaries of 10, 1,000, 100,000 and
+ * 1,000,000 phrases. Every {@link ProperNounDetection} mode is measured, with and without full word
+ * matching and sub-phrase matching. After a number of warm-up iterations, each combination reports
+ * its throughput in MB/s and the number of bytes allocated by the redacting thread, both per
+ * iteration and per character of text.</p>
+ * <p>Usage: {@code java RedactionBenchmark [--redactor=aho-corasick|simple] [--dictionaries=...]
+ * [--warmup=N] [--iterations=N] [--max-allocated-bytes-per-character=X]}, where dictionaries is a
+ * comma-separated list of "file" and dictionary sizes. If a maximum allocation is given, the
+ * benchmark fails once every combination has run if any of them allocated more than that, so
+ * allocations on the hot path can be caught as well as slowdowns.</p>
+ */
+public class RedactionBenchmark {
+
+  private static final String TEXT_FILENAME = "./warandpeace.txt";
+  private static final String REDACTED_PHRASES_FILENAME = "./redact.txt";
+
+  // The names of the dictionaries that can be benchmarked, where "file" is the redact.txt file
+  private static final String FILE_DICTIONARY = "file";
+  private static final String DEFAULT_DICTIONARIES = "file,10,1000,100000,1000000";
+
+  private static final int DEFAULT_WARMUP_ITERATIONS = 3;
+  private static final int DEFAULT_MEASUREMENT_ITERATIONS = 5;
+  private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+  public static void main(String[] args) throws IOException {
+    Function<RedactionPlan, Redactor> redactorFactory = plan -> new AhoCorasickRedactor(plan, null);
+    String dictionaries = DEFAULT_DICTIONARIES;
+    int warmupIterations = DEFAULT_WARMUP_ITERATIONS;
+    int measurementIterations = DEFAULT_MEASUREMENT_ITERATIONS;
+    double maxAllocatedBytesPerCharacter = Double.POSITIVE_INFINITY;
+
+    for (String arg : args) {
+      if (arg.equals("--redactor=simple")) {
+        redactorFactory = plan -> new SimpleTextRedactor(plan, null);
+      } else if (arg.startsWith("--dictionaries=")) {
+        dictionaries = arg.substring("--dictionaries=".length());
+      } else if (arg.startsWith("--warmup=")) {
+        warmupIterations = Integer.parseInt(arg.substring("--warmup=".length()));
+      } else if (arg.startsWith("--iterations=")) {
+        measurementIterations = Integer.parseInt(arg.substring("--iterations=".length()));
+      } else if (arg.startsWith("--max-allocated-bytes-per-character=")) {
+        maxAllocatedBytesPerCharacter = Double.parseDouble(
+            arg.substring("--max-allocated-bytes-per-character=".length())
+        );
+      } else if (!arg.equals("--redactor=aho-corasick")) {
+        throw new IllegalArgumentException("Unknown argument: " + arg);
+      }
+    }
+
+    List<String> paragraphs = readParagraphs(TEXT_FILENAME);
+    long textBytes = 0L;
+    long textCharacters = 0L;
+    for (String paragraph : paragraphs) {
+      textBytes += paragraph.getBytes(StandardCharsets.UTF_8).length;
+      textCharacters += paragraph.length();
+    }
+    List<String> failures = new ArrayList<>();
+
+    System.out.println(
+        "dictionary,properNounDetection,fullWordMatching,subPhraseMatching,compileMillis,"
+            + "megabytesPerSecond,allocatedBytesPerIteration,allocatedBytesPerCharacter"
+    );
+
+    for (String dictionary : dictionaries.split(",")) {
+      Collection<String> redactedPhrases = getRedactedPhrases(dictionary);
+      for (ProperNounDetection properNounDetection : ProperNounDetection.values()) {
+        for (boolean fullWordMatching : new boolean[] {true, false}) {
+          for (boolean subPhraseMatching : new boolean[] {false, true}) {
+            RedactionConfiguration configuration = RedactionConfiguration
+                .builder()
+                .withRedactedPhrases(redactedPhrases)
+                .withMatchRedactedWordCase(false)
+                .withFullWordMatching(fullWordMatching)
+                .withSubPhraseMatching(subPhraseMatching)
+                .withProperNounDetection(properNounDetection)
+                .build();
+
+            // The plan isn't taken from the shared cache, so that the compilation is always
+            // measured and the plans for large dictionaries don't build up in memory
+            long compileStart = System.nanoTime();
+            Redactor redactor = redactorFactory.apply(new RedactionPlan(configuration));
+            long compileNanos = System.nanoTime() - compileStart;
+
+            Result result =
+                measure(redactor, paragraphs, textBytes, warmupIterations, measurementIterations);
+            double allocatedBytesPerCharacter =
+                result.allocatedBytesPerIteration / (double) Math.max(1L, textCharacters);
+            String row = String.format(
+                Locale.ROOT,
+                "%s,%s,%b,%b,%d,%.2f,%d,%.3f",
+                dictionary, properNounDetection, fullWordMatching, subPhraseMatching,
+                compileNanos / 1_000_000L, result.megabytesPerSecond,
+                result.allocatedBytesPerIteration, allocatedBytesPerCharacter
+            );
+            System.out.println(row);
+            if (allocatedBytesPerCharacter > maxAllocatedBytesPerCharacter) {
+              failures.add(row);
+            }
+          }
+        }
+      }
+    }
+
+    if (!failures.isEmpty()) {
+      throw new IllegalStateException(
+          failures.size() + " combinations allocated more than " + maxAllocatedBytesPerCharacter
+              + " bytes per character:" + System.lineSeparator()
+              + String.join(System.lineSeparator(), failures)
+      );
+    }
+  }
+
+  /**
+   * Redacts the paragraphs repeatedly, measuring the throughput and the memory allocated.
+   * @param redactor The redactor to measure.
+   * @param paragraphs The paragraphs to redact.
+   * @param textBytes The size of the text, in bytes.
+   * @param warmupIterations The number of iterations to run before measuring.
+   * @param measurementIterations The number of iterations to measure.
+   * @return The result of the measurement.
+   * @throws IOException Thrown if there is a problem writing the results.
+   */
+  private static Result measure(
+      Redactor redactor,
+      List<String> paragraphs,
+      long textBytes,
+      int warmupIterations,
+      int measurementIterations
+  ) throws IOException {
+    Writer output = Writer.nullWriter();
+
+    for (int i = 0; i < warmupIterations; i++) {
+      redactAll(redactor, paragraphs, output);
+    }
+
+    com.sun.management.ThreadMXBean threadBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+    long start = System.nanoTime();
+
+    for (int i = 0; i < measurementIterations; i++) {
+      redactAll(redactor, paragraphs, output);
+    }
+
+    long elapsedNanos = System.nanoTime() - start;
+    long allocated = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+    Result result = new Result();
+    result.megabytesPerSecond = (textBytes * (double) measurementIterations / BYTES_PER_MEGABYTE)
+        / (elapsedNanos / 1_000_000_000.0);
+    result.allocatedBytesPerIteration = allocated / Math.max(1, measurementIterations);
+    return result;
+  }
+
+  // Redacts each of the paragraphs, writing the results to the output
+  private static void redactAll(Redactor redactor, List<String> paragraphs, Writer output)
+      throws IOException {
+    for (String paragraph : paragraphs) {
+      redactor.redact(paragraph, output);
+    }
+  }
+
+  /**
+   * Reads the text into paragraphs, split in the same way as {@link CWK2Q6}.
+   * @param textFilename The filename of the text.
+   * @return The paragraphs.
+   * @throws IOException Thrown if there is a problem reading the file.
+   */
+  private static List<String> readParagraphs(String textFilename) throws IOException {
+    List<String> paragraphs = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new FileReader(textFilename))) {
+      ParagraphReader paragraphReader = new ParagraphReader(reader);
+      String paragraph;
+      while ((paragraph = paragraphReader.readParagraph()) != null) {
+        paragraphs.add(paragraph);
+      }
+    }
+    return paragraphs;
+  }
+
+  /**
+   * Gets the redacted phrases for the named dictionary.
+   * @param dictionary Either "file", for the phrases in "redact.txt" as {@link CWK2Q6} loads
+   * them, or the number of phrases to generate.
+   * @return The redacted phrases.
+   * @throws IOException Thrown if there is a problem reading the file.
+   */
+  private static Collection<String> getRedactedPhrases(String dictionary) throws IOException {
+    if (dictionary.equals(FILE_DICTIONARY)) {
+      return CWK2Q6.getRedactedPhrases(REDACTED_PHRASES_FILENAME);
+    }
+    return generateRedactedPhrases(Integer.parseInt(dictionary));
+  }
+
+  /**
+   * Generates capitalised two-word names, like those in "redact.txt". The same seed is always used
+   * so that runs can be compared.
+   * @param numberOfPhrases The number of phrases to generate.
+   * @return The generated phrases.
+   */
+  private static Collection<String> generateRedactedPhrases(int numberOfPhrases) {
+    Random random = new Random(numberOfPhrases);
+    Set<String> redactedPhrases = new HashSet<>();
+    while (redactedPhrases.size() < numberOfPhrases) {
+      redactedPhrases.add(generateName(random) + " " + generateName(random));
+    }
+    return redactedPhrases;
+  }
+
+  // Generates a capitalised name of between 3 and 10 letters
+  private static String generateName(Random random) {
+    int length = 3 + random.nextInt(8);
+    StringBuilder name = new StringBuilder(length);
+    name.append((char) ('A' + random.nextInt(26)));
+    for (int i = 1; i < length; i++) {
+      name.append((char) ('a' + random.nextInt(26)));
+    }
+    return name.toString();
+  }
+
+  /**
+   * The result of measuring a single combination. This is effectively just a struct.
+   */
+  private static class Result {
+    private double megabytesPerSecond;
+    private long allocatedBytesPerIteration;
+  }
+}
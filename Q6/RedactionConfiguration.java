@@ -1,6 +1,8 @@
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -17,22 +19,36 @@ public class RedactionConfiguration {
   private final boolean matchRedactedWordCase;
   private final boolean fullWordMatching;
   private final String wordSeparatorRegex;
+  private final Pattern wordSeparatorPattern;
   private final ProperNounDetection properNounDetection;
   private final char replacementCharacter;
 
+  // Configurations are used as cache keys, and hashing a large dictionary isn't cheap
+  private final int hashCode;
+
+  // The word separator table takes a while to build, and a plan loaded from a file brings its own,
+  // so it's only built the first time that it's needed
+  private volatile BitSet wordSeparators;
+
   // Retrieve the values from the builder to initialise the class
   private RedactionConfiguration(Builder builder) {
-    this.redactedPhrases = buildRedactedPhrases(builder);
+    List<String> redactedPhrases = buildRedactedPhrases(builder);
 
     // Phrases are sorted so that the longest phrases will appear first when retrieved. See the
     // getRedactedPhrases() Javadoc for info on why
-    sortPhrases();
+    sortPhrases(redactedPhrases);
 
+    this.redactedPhrases = Collections.unmodifiableList(redactedPhrases);
     this.matchRedactedWordCase = builder.matchRedactedWordCase;
     this.fullWordMatching = builder.fullWordMatching;
     this.wordSeparatorRegex = builder.wordSeparatorRegex;
+    this.wordSeparatorPattern = Pattern.compile(wordSeparatorRegex);
     this.properNounDetection = builder.properNounDetection;
     this.replacementCharacter = builder.replacementCharacter;
+    this.hashCode = Objects.hash(
+        redactedPhrases, matchRedactedWordCase, fullWordMatching, wordSeparatorRegex,
+        properNounDetection, replacementCharacter
+    );
   }
 
   private List<String> buildRedactedPhrases(Builder builder) {
@@ -42,7 +58,7 @@ public class RedactionConfiguration {
       return builder
           .redactedPhrases
           .stream()
-          .map(phrase -> phrase.split("\\s+")) // split by whitespace
+          .map(RedactionConfiguration::splitIntoSubPhrases)
           .flatMap(Arrays::stream)
           .distinct()
           .collect(Collectors.toList());
@@ -52,15 +68,64 @@ public class RedactionConfiguration {
     return new ArrayList<>(builder.redactedPhrases);
   }
 
+  /**
+   * Splits a phrase into the sub-phrases that are redacted when sub-phrase matching is enabled.
+   * @param phrase The phrase.
+   * @return The words in the phrase, according to whitespace.
+   */
+  static String[] splitIntoSubPhrases(String phrase) {
+    return phrase.split("\\s+");
+  }
+
+  /**
+   * Normalises a redacted phrase in the same way as {@link
+   * Builder#withRedactedPhrases(Collection)}.
+   * @param phrase The phrase.
+   * @return The phrase, trimmed and with each run of whitespace replaced by a single space.
+   */
+  static String normalisePhrase(String phrase) {
+    // St. Petersburg has a trailing space which doesn't need to be matched, so remove it
+    return phrase.trim().replaceAll("\\s+", " ");
+  }
+
   /**
    * The phrases should be sort in reverse alphabetical order of their size. This accounts for
    * sub-phrases being part of other redacted phrases.
+   * @param redactedPhrases The phrases to sort.
    * @see #getRedactedPhrases()
    */
-  private void sortPhrases() {
+  private static void sortPhrases(List<String> redactedPhrases) {
     redactedPhrases.sort((o1, o2) -> Integer.compare(o2.length(), o1.length()));
   }
 
+  /**
+   * Word separators are checked for almost every character in the text, so the regex is evaluated
+   * up front for every character in the Basic Multilingual Plane. Surrogates aren't characters in
+   * their own right, so these are left to the pattern.
+   * @param wordSeparatorPattern The pattern that matches a word separator.
+   * @return The set of characters that are word separators.
+   */
+  private static BitSet buildWordSeparators(Pattern wordSeparatorPattern) {
+    BitSet wordSeparators = new BitSet(Character.MAX_VALUE + 1);
+    for (int character = Character.MIN_VALUE; character <= Character.MAX_VALUE; character++) {
+      if (!Character.isSurrogate((char) character)
+          && wordSeparatorPattern.matcher(Character.toString(character)).matches()
+      ) {
+        wordSeparators.set(character);
+      }
+    }
+    return wordSeparators;
+  }
+
+  /**
+   * Case-folds the character if redacted phrases should be matched case-insensitively.
+   * @param character The character.
+   * @return The folded character, or the character itself if phrases are matched case-sensitively.
+   */
+  public char foldCase(char character) {
+    return matchRedactedWordCase ? character : Character.toLowerCase(character);
+  }
+
   /**
    * Checks if the given character is a word separator according to this configuration. This should
    * only be used if {@link #isFullWordMatching()}.
@@ -68,7 +133,33 @@ public class RedactionConfiguration {
    * @return {@code true} if and only if the given character is a word separator.
    */
   public boolean isWordSeparator(char character) {
-    return Character.toString(character).matches(wordSeparatorRegex);
+    return Character.isSurrogate(character) ?
+        wordSeparatorPattern.matcher(Character.toString(character)).matches()
+        : getWordSeparators().get(character);
+  }
+
+  /**
+   * Gets the characters in the Basic Multilingual Plane, other than surrogates, that are word
+   * separators. The set is shared, so it mustn't be modified.
+   * @return The word separators.
+   */
+  BitSet getWordSeparators() {
+    BitSet wordSeparators = this.wordSeparators;
+    if (wordSeparators == null) {
+      // Threads that race to build the table build the same one, so it doesn't matter which wins
+      wordSeparators = buildWordSeparators(wordSeparatorPattern);
+      this.wordSeparators = wordSeparators;
+    }
+    return wordSeparators;
+  }
+
+  /**
+   * Gets the regex that determines whether a character is a word separator.
+   * @return The word separator regex.
+   * @see #isWordSeparator(char)
+   */
+  public String getWordSeparatorRegex() {
+    return wordSeparatorRegex;
   }
 
   /**
@@ -90,10 +181,11 @@ public class RedactionConfiguration {
    * Subsequently searching for "Charles Dickens" in the text would result in no match.</p>
    * <p>By returning the longest phrases first, the caller can safely apply these redactions without
    * having to worry too much about the order in which they are applied.</p>
-   * @return The collection of phrases that should be redacted from text.
+   * @return The collection of phrases that should be redacted from text. This list can't be
+   * modified.
    */
-  public Collection<String> getRedactedPhrases() {
-    return new ArrayList<>(redactedPhrases);
+  public List<String> getRedactedPhrases() {
+    return redactedPhrases;
   }
 
   /**
@@ -167,10 +259,7 @@ public class RedactionConfiguration {
 
   @Override
   public int hashCode() {
-    return Objects.hash(
-        redactedPhrases, matchRedactedWordCase, fullWordMatching, wordSeparatorRegex,
-        properNounDetection, replacementCharacter
-    );
+    return hashCode;
   }
 
   /**
@@ -210,9 +299,7 @@ public class RedactionConfiguration {
       if (redactedPhrases != null) {
         redactedPhrases
             .stream()
-            // St. Petersburg has a trailing space which doesn't need to be matched, so remove it
-            .map(String::trim)
-            .map(phrase -> phrase.replaceAll("\\s+", " "))
+            .map(RedactionConfiguration::normalisePhrase)
             .forEach(this.redactedPhrases::add);
       }
       return this;
@@ -311,5 +398,36 @@ public class RedactionConfiguration {
     public RedactionConfiguration build() {
       return new RedactionConfiguration(this);
     }
+
+    /**
+     * Builds a configuration with the same settings as this builder, but with no redacted phrases.
+     * @return The configuration.
+     */
+    RedactionConfiguration buildWithoutRedactedPhrases() {
+      Builder builder = new Builder();
+      builder.matchRedactedWordCase = matchRedactedWordCase;
+      builder.fullWordMatching = fullWordMatching;
+      builder.wordSeparatorRegex = wordSeparatorRegex;
+      builder.properNounDetection = properNounDetection;
+      builder.replacementCharacter = replacementCharacter;
+      return builder.build();
+    }
+
+    /**
+     * Gets the normalised phrases that have been added to this builder, before any sub-phrase
+     * splitting.
+     * @return The phrases. This collection can't be modified.
+     */
+    Collection<String> getRedactedPhrases() {
+      return Collections.unmodifiableCollection(redactedPhrases);
+    }
+
+    /**
+     * Determines whether sub-phrases should be matched.
+     * @return {@code true} if sub-phrases should be matched.
+     */
+    boolean isSubPhraseMatching() {
+      return subPhraseMatching;
+    }
   }
 }
@@ -0,0 +1,630 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * <p>A {@link Redactor} whose redacted phrases can be added and removed while it's in use, without
+ * recompiling the whole dictionary.</p>
+ * <p>The phrases are held in a trie, keyed by the same symbols as {@link AhoCorasickPhraseMatcher}:
+ * case-folded characters, with each run of whitespace as a single space. The trie is never modified
+ * once it has been published. Instead, an update copies the nodes on the path to the phrase that
+ * changed and publishes a new snapshot that shares every other node with the old one. Redacting
+ * reads the current snapshot without taking a lock, so it always sees a consistent set of phrases,
+ * and a call that's in flight during an update finishes with the old phrases.</p>
+ * <p>Phrases are normalised in the same way as {@link RedactionConfiguration.Builder}, and are
+ * split into their words if sub-phrase matching is enabled. Each word is kept for as long as one of
+ * the phrases that it came from is in the dictionary.</p>
+ * <p>Redacting produces the same result as a {@link SimpleTextRedactor} whose configuration was
+ * built with the phrases that are currently in the dictionary. This class is thread safe, although
+ * updates are applied one at a time.</p>
+ */
+public class RedactionDictionary implements Redactor {
+
+  private final RedactionPlan plan;
+  private final boolean subPhraseMatching;
+  private final RedactionListener listener;
+
+  // Every snapshot's redactor shares these, so that updates don't leave each thread to allocate
+  // new ones
+  private final ThreadLocal<ScratchBuffers> scratchBuffers =
+      ThreadLocal.withInitial(ScratchBuffers::new);
+
+  // The state used to build the next snapshot. This is only accessed while holding the lock on the
+  // dictionary
+  private final Set<String> phrases = new HashSet<>();
+  private final Map<String, Integer> indexedPhraseCounts = new HashMap<>();
+  private final TreeMap<Integer, Integer> indexedPhraseLengthCounts = new TreeMap<>();
+
+  private volatile Snapshot snapshot;
+
+  /**
+   * Creates a new dictionary, containing the phrases that have been added to the builder and using
+   * its settings.
+   * @param builder The builder that specifies the initial phrases, and how redactions should be
+   * found and replaced.
+   * @param listener The listener that is notified of each redaction, or {@code null} if no
+   * listener is required.
+   * @throws NullPointerException Thrown if {@code builder == null}.
+   */
+  public RedactionDictionary(RedactionConfiguration.Builder builder, RedactionListener listener)
+      throws NullPointerException {
+    Objects.requireNonNull(builder, "Builder is null");
+    this.plan = new RedactionPlan(builder.buildWithoutRedactedPhrases());
+    this.subPhraseMatching = builder.isSubPhraseMatching();
+    this.listener = listener;
+
+    BitSet noCharacters = new BitSet();
+    this.snapshot = new Snapshot(
+        this, Node.EMPTY, Collections.emptyList(), noCharacters, createScanner(noCharacters), 0
+    );
+    addInitialPhrases(builder.getRedactedPhrases());
+  }
+
+  /**
+   * Adds the phrases that the dictionary starts with. Copying the path to each phrase in turn would
+   * be wasteful when there's nothing to share it with, so the trie is built in one go instead.
+   * @param normalisedPhrases The phrases, which have already been normalised.
+   */
+  private void addInitialPhrases(Collection<String> normalisedPhrases) {
+    List<char[]> regularPhrases = new ArrayList<>();
+    List<String> irregularPhrases = new ArrayList<>();
+    for (String normalisedPhrase : normalisedPhrases) {
+      if (!phrases.add(normalisedPhrase)) {
+        continue;
+      }
+      for (String indexedPhrase : getIndexedPhrases(normalisedPhrase)) {
+        if (indexedPhraseCounts.merge(indexedPhrase, 1, Integer::sum) > 1
+            || indexedPhrase.isEmpty()
+        ) {
+          continue;
+        }
+        indexedPhraseLengthCounts.merge(indexedPhrase.length(), 1, Integer::sum);
+        if (isIrregular(indexedPhrase)) {
+          irregularPhrases.add(indexedPhrase);
+        } else {
+          regularPhrases.add(toSymbols(indexedPhrase));
+        }
+      }
+    }
+
+    // Sorting the phrases means that the phrases below each node are next to each other
+    regularPhrases.sort(Arrays::compare);
+    irregularPhrases.sort((o1, o2) -> Integer.compare(o2.length(), o1.length()));
+    publish(
+        Node.build(regularPhrases, 0, regularPhrases.size(), 0),
+        Collections.unmodifiableList(irregularPhrases)
+    );
+  }
+
+  @Override
+  public String redact(String text) {
+    return snapshot.redactor.redact(text, scratchBuffers.get());
+  }
+
+  @Override
+  public void redact(CharSequence text, Appendable output) throws IOException {
+    snapshot.redactor.redact(text, output);
+  }
+
+  @Override
+  public RedactorSession startSession(Appendable output) throws NullPointerException {
+    return snapshot.redactor.startSession(output);
+  }
+
+  /**
+   * Adds a phrase to the dictionary.
+   * @param phrase The phrase.
+   * @return The cost of the update.
+   * @throws NullPointerException Thrown if {@code phrase == null}.
+   */
+  public synchronized Update addPhrase(String phrase) throws NullPointerException {
+    Objects.requireNonNull(phrase, "Phrase is null");
+    return addNormalisedPhrase(RedactionConfiguration.normalisePhrase(phrase));
+  }
+
+  /**
+   * Removes a phrase from the dictionary. This has no effect if the phrase isn't in the dictionary.
+   * @param phrase The phrase.
+   * @return The cost of the update.
+   * @throws NullPointerException Thrown if {@code phrase == null}.
+   */
+  public synchronized Update removePhrase(String phrase) throws NullPointerException {
+    Objects.requireNonNull(phrase, "Phrase is null");
+    long start = System.nanoTime();
+    String normalisedPhrase = RedactionConfiguration.normalisePhrase(phrase);
+    Update update = new Update();
+    if (phrases.remove(normalisedPhrase)) {
+      for (String indexedPhrase : getIndexedPhrases(normalisedPhrase)) {
+        int count = indexedPhraseCounts.merge(indexedPhrase, -1, Integer::sum);
+        if (count == 0) {
+          indexedPhraseCounts.remove(indexedPhrase);
+          removeFromIndex(indexedPhrase, update);
+        }
+      }
+    }
+    return update.finish(start);
+  }
+
+  /**
+   * Gets the number of phrases that are matched, i.e. after any sub-phrase splitting.
+   * @return The number of phrases.
+   */
+  public synchronized int getNumberOfIndexedPhrases() {
+    return indexedPhraseCounts.size();
+  }
+
+  // Adds a phrase that has already been normalised
+  private Update addNormalisedPhrase(String normalisedPhrase) {
+    long start = System.nanoTime();
+    Update update = new Update();
+    if (phrases.add(normalisedPhrase)) {
+      for (String indexedPhrase : getIndexedPhrases(normalisedPhrase)) {
+        if (indexedPhraseCounts.merge(indexedPhrase, 1, Integer::sum) == 1) {
+          addToIndex(indexedPhrase, update);
+        }
+      }
+    }
+    return update.finish(start);
+  }
+
+  // Gets the distinct phrases that are matched for the given phrase
+  private List<String> getIndexedPhrases(String normalisedPhrase) {
+    if (!subPhraseMatching) {
+      return Collections.singletonList(normalisedPhrase);
+    }
+    List<String> subPhrases = new ArrayList<>();
+    for (String subPhrase : RedactionConfiguration.splitIntoSubPhrases(normalisedPhrase)) {
+      if (!subPhrases.contains(subPhrase)) {
+        subPhrases.add(subPhrase);
+      }
+    }
+    return subPhrases;
+  }
+
+  /**
+   * Publishes a new snapshot that also matches the phrase.
+   * @param indexedPhrase The phrase, which isn't already matched.
+   * @param update The update, which the cost of this change is added to.
+   */
+  private void addToIndex(String indexedPhrase, Update update) {
+    // An empty phrase never results in a redaction, so there's no need to match it
+    if (indexedPhrase.isEmpty()) {
+      return;
+    }
+    indexedPhraseLengthCounts.merge(indexedPhrase.length(), 1, Integer::sum);
+
+    Snapshot current = snapshot;
+    if (isIrregular(indexedPhrase)) {
+      List<String> irregularPhrases = new ArrayList<>(current.irregularPhrases);
+      irregularPhrases.add(indexedPhrase);
+      irregularPhrases.sort((o1, o2) -> Integer.compare(o2.length(), o1.length()));
+      update.changed = true;
+      publish(current.root, Collections.unmodifiableList(irregularPhrases));
+    } else {
+      publish(current.root.with(toSymbols(indexedPhrase), 0, update), current.irregularPhrases);
+    }
+  }
+
+  /**
+   * Publishes a new snapshot that no longer matches the phrase.
+   * @param indexedPhrase The phrase, which is currently matched.
+   * @param update The update, which the cost of this change is added to.
+   */
+  private void removeFromIndex(String indexedPhrase, Update update) {
+    if (indexedPhrase.isEmpty()) {
+      return;
+    }
+    if (indexedPhraseLengthCounts.merge(indexedPhrase.length(), -1, Integer::sum) == 0) {
+      indexedPhraseLengthCounts.remove(indexedPhrase.length());
+    }
+
+    Snapshot current = snapshot;
+    if (isIrregular(indexedPhrase)) {
+      List<String> irregularPhrases = new ArrayList<>(current.irregularPhrases);
+      irregularPhrases.remove(indexedPhrase);
+      update.changed = true;
+      publish(current.root, Collections.unmodifiableList(irregularPhrases));
+    } else {
+      Node root = current.root.without(toSymbols(indexedPhrase), 0, update);
+      publish(root == null ? Node.EMPTY : root, current.irregularPhrases);
+    }
+  }
+
+  /**
+   * Publishes a new snapshot. The characters that can start a phrase are only worked out again if
+   * the first characters of the phrases have changed, as this means checking every character.
+   * @param root The root of the trie.
+   * @param irregularPhrases The phrases that aren't in the trie. This list can't be modified.
+   */
+  private void publish(Node root, List<String> irregularPhrases) {
+    Snapshot current = snapshot;
+
+    // The first characters are the labels on the root, so they only change if the labels do
+    CandidateScanner scanner = current.scanner;
+    BitSet phraseStartCharacters = current.phraseStartCharacters;
+    if (root.labels != current.root.labels || irregularPhrases != current.irregularPhrases) {
+      phraseStartCharacters = getPhraseStartCharacters(root, irregularPhrases);
+      if (!phraseStartCharacters.equals(current.phraseStartCharacters)) {
+        scanner = createScanner(phraseStartCharacters);
+      }
+    }
+
+    int longestPhraseLength =
+        indexedPhraseLengthCounts.isEmpty() ? 0 : indexedPhraseLengthCounts.lastKey();
+    snapshot = new Snapshot(
+        this, root, irregularPhrases, phraseStartCharacters, scanner, longestPhraseLength
+    );
+  }
+
+  // Creates the fastest scanner that finds the phrases starting with the given characters
+  private CandidateScanner createScanner(BitSet phraseStartCharacters) {
+    return CandidateScanner.forScalarScanner(
+        new ScalarCandidateScanner(plan, phraseStartCharacters)
+    );
+  }
+
+  // Finds the characters that fold to the first symbol of a phrase
+  private BitSet getPhraseStartCharacters(Node root, List<String> irregularPhrases) {
+    BitSet phraseStartCharacters = new BitSet(Character.MAX_VALUE + 1);
+    for (int character = Character.MIN_VALUE; character <= Character.MAX_VALUE; character++) {
+      char symbol = plan.foldCase((char) character);
+      if (Arrays.binarySearch(root.labels, symbol) >= 0) {
+        phraseStartCharacters.set(character);
+      }
+    }
+    for (String irregularPhrase : irregularPhrases) {
+      char symbol = plan.foldCase(irregularPhrase.charAt(0));
+      for (int character = Character.MIN_VALUE; character <= Character.MAX_VALUE; character++) {
+        if (plan.foldCase((char) character) == symbol) {
+          phraseStartCharacters.set(character);
+        }
+      }
+    }
+    return phraseStartCharacters;
+  }
+
+  // Phrases containing whitespace other than a single space can't be matched by the trie, as the
+  // text's whitespace is collapsed into a single space. These are rare, so are tried one by one
+  private static boolean isIrregular(String phrase) {
+    for (int i = 0; i < phrase.length(); i++) {
+      char character = phrase.charAt(i);
+      if (character != ' ' && Character.isWhitespace(character)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Converts the phrase into the symbols used as keys in the trie
+  private char[] toSymbols(String phrase) {
+    char[] symbols = new char[phrase.length()];
+    for (int i = 0; i < symbols.length; i++) {
+      symbols[i] = plan.foldCase(phrase.charAt(i));
+    }
+    return symbols;
+  }
+
+  /**
+   * The cost of an update to the dictionary.
+   */
+  public static class Update {
+    private int nodesCopied = 0;
+    private boolean changed = false;
+    private long elapsedNanos = 0L;
+
+    // Creates an update with no cost so far
+    private Update() {
+    }
+
+    // Records the time taken for the update
+    private Update finish(long startNanos) {
+      elapsedNanos = System.nanoTime() - startNanos;
+      return this;
+    }
+
+    /**
+     * Determines whether the phrases that are matched changed as a result of the update.
+     * @return {@code true} if a phrase was added to or removed from the trie.
+     */
+    public boolean isChanged() {
+      return changed;
+    }
+
+    /**
+     * Gets the number of trie nodes that were copied by the update. Every other node is shared with
+     * the previous snapshot.
+     * @return The number of nodes copied.
+     */
+    public int getNodesCopied() {
+      return nodesCopied;
+    }
+
+    /**
+     * Gets how long the update took, including publishing the new snapshot.
+     * @return The elapsed time, in nanoseconds.
+     */
+    public long getElapsedNanos() {
+      return elapsedNanos;
+    }
+  }
+
+  /**
+   * A node in the trie. Nodes are never modified once they have been created, so they can be shared
+   * between snapshots.
+   */
+  private static final class Node {
+    private static final Node EMPTY = new Node(new char[0], new Node[0], 0);
+
+    // The symbols on the transitions to the children, in ascending order
+    private final char[] labels;
+    private final Node[] children;
+
+    // The number of phrases that end at this node. There can be more than one if phrases are
+    // matched case-insensitively, e.g. "Bob" and "bob"
+    private final int phrasesEndingHere;
+
+    // Initialises the node with its children
+    private Node(char[] labels, Node[] children, int phrasesEndingHere) {
+      this.labels = labels;
+      this.children = children;
+      this.phrasesEndingHere = phrasesEndingHere;
+    }
+
+    /**
+     * Builds the subtree containing a range of phrases that all share the same prefix.
+     * @param sortedPhrases The symbols in each phrase, sorted lexicographically.
+     * @param startIndex The index of the first phrase in the range (inclusive).
+     * @param endIndex The index of the last phrase in the range (exclusive).
+     * @param depth The length of the prefix shared by the phrases in the range.
+     * @return The root of the subtree.
+     */
+    private static Node build(List<char[]> sortedPhrases, int startIndex, int endIndex, int depth) {
+      // Phrases that end here sort before any longer phrases with the same prefix
+      int phrasesEndingHere = 0;
+      while (startIndex < endIndex && sortedPhrases.get(startIndex).length == depth) {
+        phrasesEndingHere++;
+        startIndex++;
+      }
+
+      int numberOfChildren = 0;
+      for (int i = startIndex; i < endIndex; i++) {
+        if (i == startIndex || sortedPhrases.get(i)[depth] != sortedPhrases.get(i - 1)[depth]) {
+          numberOfChildren++;
+        }
+      }
+
+      if (numberOfChildren == 0) {
+        return new Node(EMPTY.labels, EMPTY.children, phrasesEndingHere);
+      }
+      char[] labels = new char[numberOfChildren];
+      Node[] children = new Node[numberOfChildren];
+      int childStartIndex = startIndex;
+      for (int child = 0; child < numberOfChildren; child++) {
+        char label = sortedPhrases.get(childStartIndex)[depth];
+        int childEndIndex = childStartIndex + 1;
+        while (childEndIndex < endIndex && sortedPhrases.get(childEndIndex)[depth] == label) {
+          childEndIndex++;
+        }
+        labels[child] = label;
+        children[child] = build(sortedPhrases, childStartIndex, childEndIndex, depth + 1);
+        childStartIndex = childEndIndex;
+      }
+      return new Node(labels, children, phrasesEndingHere);
+    }
+
+    /**
+     * Gets the child on the transition with the given symbol.
+     * @param symbol The symbol.
+     * @return The child, or {@code null} if there is no transition.
+     */
+    private Node getChild(char symbol) {
+      int index = Arrays.binarySearch(labels, symbol);
+      return index < 0 ? null : children[index];
+    }
+
+    /**
+     * Creates a copy of this node whose subtree also contains the phrase.
+     * @param symbols The symbols in the phrase.
+     * @param depth The depth of this node, i.e. the index of the next symbol.
+     * @param update The update, which each copied node is counted in.
+     * @return The copy.
+     */
+    private Node with(char[] symbols, int depth, Update update) {
+      update.nodesCopied++;
+      if (depth == symbols.length) {
+        update.changed = true;
+        return new Node(labels, children, phrasesEndingHere + 1);
+      }
+
+      int index = Arrays.binarySearch(labels, symbols[depth]);
+      if (index >= 0) {
+        Node[] newChildren = children.clone();
+        newChildren[index] = children[index].with(symbols, depth + 1, update);
+        return new Node(labels, newChildren, phrasesEndingHere);
+      }
+
+      // Insert a new child, keeping the labels sorted
+      index = -(index + 1);
+      char[] newLabels = new char[labels.length + 1];
+      Node[] newChildren = new Node[children.length + 1];
+      System.arraycopy(labels, 0, newLabels, 0, index);
+      System.arraycopy(children, 0, newChildren, 0, index);
+      newLabels[index] = symbols[depth];
+      newChildren[index] = EMPTY.with(symbols, depth + 1, update);
+      System.arraycopy(labels, index, newLabels, index + 1, labels.length - index);
+      System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+      return new Node(newLabels, newChildren, phrasesEndingHere);
+    }
+
+    /**
+     * Creates a copy of this node whose subtree no longer contains the phrase.
+     * @param symbols The symbols in the phrase.
+     * @param depth The depth of this node, i.e. the index of the next symbol.
+     * @param update The update, which each copied node is counted in.
+     * @return The copy, or {@code null} if the copy would have no phrases in its subtree.
+     */
+    private Node without(char[] symbols, int depth, Update update) {
+      if (depth == symbols.length) {
+        update.changed = true;
+        if (phrasesEndingHere == 1 && children.length == 0) {
+          return null;
+        }
+        update.nodesCopied++;
+        return new Node(labels, children, phrasesEndingHere - 1);
+      }
+
+      int index = Arrays.binarySearch(labels, symbols[depth]);
+      if (index < 0) {
+        return this;
+      }
+      Node newChild = children[index].without(symbols, depth + 1, update);
+      if (newChild == children[index]) {
+        return this;
+      }
+      if (newChild != null) {
+        update.nodesCopied++;
+        Node[] newChildren = children.clone();
+        newChildren[index] = newChild;
+        return new Node(labels, newChildren, phrasesEndingHere);
+      }
+      if (children.length == 1 && phrasesEndingHere == 0) {
+        return null;
+      }
+
+      // Remove the child, as there are no phrases left in its subtree
+      update.nodesCopied++;
+      char[] newLabels = new char[labels.length - 1];
+      Node[] newChildren = new Node[children.length - 1];
+      System.arraycopy(labels, 0, newLabels, 0, index);
+      System.arraycopy(children, 0, newChildren, 0, index);
+      System.arraycopy(labels, index + 1, newLabels, index, labels.length - index - 1);
+      System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+      return new Node(newLabels, newChildren, phrasesEndingHere);
+    }
+  }
+
+  /**
+   * An immutable view of the phrases in the dictionary, along with a redactor that matches them.
+   */
+  private static final class Snapshot {
+    private final Node root;
+    private final List<String> irregularPhrases;
+    private final BitSet phraseStartCharacters;
+    private final CandidateScanner scanner;
+    private final SimpleTextRedactor redactor;
+
+    // Initialises the snapshot with the phrases, creating a redactor that matches them
+    private Snapshot(
+        RedactionDictionary dictionary,
+        Node root,
+        List<String> irregularPhrases,
+        BitSet phraseStartCharacters,
+        CandidateScanner scanner,
+        int longestPhraseLength
+    ) {
+      this.root = root;
+      this.irregularPhrases = irregularPhrases;
+      this.phraseStartCharacters = phraseStartCharacters;
+      this.scanner = scanner;
+      this.redactor = new SimpleTextRedactor(
+          dictionary.plan,
+          new TriePhraseMatcher(dictionary.plan, root, irregularPhrases),
+          scanner,
+          longestPhraseLength,
+          dictionary.listener,
+          dictionary.scratchBuffers
+      );
+    }
+  }
+
+  /**
+   * Finds the longest phrase that starts at an index by walking down the trie from the root.
+   */
+  private static final class TriePhraseMatcher implements PhraseMatcher {
+    private final RedactionPlan plan;
+    private final Node root;
+    private final List<String> irregularPhrases;
+
+    // Initialises the matcher with the phrases in a snapshot
+    private TriePhraseMatcher(RedactionPlan plan, Node root, List<String> irregularPhrases) {
+      this.plan = plan;
+      this.root = root;
+      this.irregularPhrases = irregularPhrases;
+    }
+
+    @Override
+    public Matches findMatches(CharSequence text) throws NullPointerException {
+      Objects.requireNonNull(text, "Text is null");
+      return index -> getMatchEndIndex(text, index);
+    }
+
+    /**
+     * Gets the end index of the longest phrase that starts at the given index.
+     * @param text The text.
+     * @param index The start index.
+     * @return The end index (exclusive) of the match, or {@code -1} if no phrase starts at the
+     * index.
+     */
+    private int getMatchEndIndex(CharSequence text, int index) {
+      boolean fullWordMatching = plan.getConfiguration().isFullWordMatching();
+      Node node = root;
+      int textIndex = index;
+      int depth = 0;
+      int matchLength = 0;
+      int matchEndIndex = -1;
+
+      while (textIndex < text.length()) {
+        char character = text.charAt(textIndex++);
+        char symbol;
+
+        // Collapse runs of whitespace into a single space
+        if (Character.isWhitespace(character)) {
+          symbol = ' ';
+          while (textIndex < text.length() && Character.isWhitespace(text.charAt(textIndex))) {
+            textIndex++;
+          }
+        } else {
+          symbol = plan.foldCase(character);
+        }
+
+        node = node.getChild(symbol);
+        if (node == null) {
+          break;
+        }
+        depth++;
+
+        if (node.phrasesEndingHere > 0
+            && (!fullWordMatching
+                || textIndex >= text.length()
+                || plan.isWordSeparator(text.charAt(textIndex)))
+        ) {
+          matchLength = depth;
+          matchEndIndex = textIndex;
+        }
+      }
+
+      // Irregular phrases take priority if they're longer than the phrase found in the trie
+      for (String irregularPhrase : irregularPhrases) {
+        if (irregularPhrase.length() <= matchLength) {
+          break;
+        }
+        int irregularMatchEndIndex =
+            plan.getLinearPhraseMatcher().getMatchEndIndex(text, index, irregularPhrase);
+        if (irregularMatchEndIndex >= 0) {
+          return irregularMatchEndIndex;
+        }
+      }
+      return matchEndIndex;
+    }
+  }
+}
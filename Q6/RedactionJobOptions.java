@@ -0,0 +1,227 @@
+/**
+ * Options that control how {@link CWK2Q6} runs a redaction job, as opposed to the {@link
+ * RedactionConfiguration}, which controls what is redacted.
+ */
+public class RedactionJobOptions {
+
+  private final int numberOfThreads;
+  private final boolean memoryMapped;
+  private final boolean metricsEnabled;
+  private final boolean properNounIndexing;
+  private final boolean checkpointing;
+  private final boolean resuming;
+  private final int numberOfOutputBuffers;
+  private final int outputBufferSize;
+
+  // Retrieve the values from the builder to initialise the class
+  private RedactionJobOptions(Builder builder) {
+    this.numberOfThreads = builder.numberOfThreads;
+    this.memoryMapped = builder.memoryMapped;
+    this.metricsEnabled = builder.metricsEnabled;
+    this.properNounIndexing = builder.properNounIndexing;
+    this.checkpointing = builder.checkpointing || builder.resuming;
+    this.resuming = builder.resuming;
+    this.numberOfOutputBuffers = builder.numberOfOutputBuffers;
+    this.outputBufferSize = builder.outputBufferSize;
+  }
+
+  /**
+   * Gets the number of threads that should redact paragraphs. If this is 1, the redaction is
+   * performed on the calling thread.
+   * @return The number of threads.
+   */
+  public int getNumberOfThreads() {
+    return numberOfThreads;
+  }
+
+  /**
+   * Determines whether the input file should be memory-mapped rather than read line by line.
+   * @return {@code true} if the input file should be memory-mapped.
+   * @see MappedFileRedactor
+   */
+  public boolean isMemoryMapped() {
+    return memoryMapped;
+  }
+
+  /**
+   * Determines whether metrics should be collected for the job. If so, the job's progress is shown
+   * as it runs and a summary is written out at the end.
+   * @return {@code true} if metrics should be collected.
+   * @see RedactionMetrics
+   */
+  public boolean isMetricsEnabled() {
+    return metricsEnabled;
+  }
+
+  /**
+   * Determines whether proper nouns should be detected in two passes. If so, the whole input file
+   * is read once to build an index of how each word is capitalised, and then read again to redact
+   * it.
+   * @return {@code true} if proper nouns should be detected with an index.
+   * @see ProperNounIndex
+   */
+  public boolean isProperNounIndexing() {
+    return properNounIndexing;
+  }
+
+  /**
+   * Determines whether the job should write checkpoints as it runs, so that it can be resumed if it
+   * dies part way through. This is always the case if the job is {@linkplain #isResuming()
+   * resuming}.
+   * @return {@code true} if the job should write checkpoints.
+   * @see CheckpointedFileRedactor
+   */
+  public boolean isCheckpointing() {
+    return checkpointing;
+  }
+
+  /**
+   * Determines whether the job should carry on from the last checkpoint of an earlier run, rather
+   * than starting again.
+   * @return {@code true} if the job should be resumed.
+   * @see CheckpointedFileRedactor
+   */
+  public boolean isResuming() {
+    return resuming;
+  }
+
+  /**
+   * Gets the number of buffers that the redacted text is written into before a dedicated thread
+   * writes it out. If this is less than 2, the text is written out on the thread that redacts it.
+   * @return The number of output buffers.
+   * @see AsyncBufferedWriter
+   */
+  public int getNumberOfOutputBuffers() {
+    return numberOfOutputBuffers;
+  }
+
+  /**
+   * Gets the number of characters that each output buffer holds.
+   * @return The size of each output buffer.
+   * @see AsyncBufferedWriter
+   */
+  public int getOutputBufferSize() {
+    return outputBufferSize;
+  }
+
+  /**
+   * Creates a builder for {@link RedactionJobOptions} objects.
+   * @return A new builder.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * A builder for {@link RedactionJobOptions} objects.
+   */
+  public static class Builder {
+
+    private int numberOfThreads = 1;
+    private boolean memoryMapped = false;
+    private boolean metricsEnabled = false;
+    private boolean properNounIndexing = false;
+    private boolean checkpointing = false;
+    private boolean resuming = false;
+    private int numberOfOutputBuffers = 4;
+    private int outputBufferSize = 64 * 1024;
+
+    /**
+     * Specifies the number of threads that should redact paragraphs. If unspecified, this will be
+     * 1, i.e. the redaction is performed on the calling thread.
+     * @param numberOfThreads The number of threads. Values less than 1 are treated as 1.
+     * @return This builder.
+     */
+    public Builder withNumberOfThreads(int numberOfThreads) {
+      this.numberOfThreads = Math.max(1, numberOfThreads);
+      return this;
+    }
+
+    /**
+     * Specifies whether the input file should be memory-mapped rather than read line by line. If
+     * unspecified, this will be {@code false}.
+     * @param memoryMapped Should be {@code true} if the input file should be memory-mapped.
+     * @return This builder.
+     */
+    public Builder withMemoryMapping(boolean memoryMapped) {
+      this.memoryMapped = memoryMapped;
+      return this;
+    }
+
+    /**
+     * Specifies whether metrics should be collected for the job. If unspecified, this will be
+     * {@code false}.
+     * @param metricsEnabled Should be {@code true} if metrics should be collected.
+     * @return This builder.
+     */
+    public Builder withMetrics(boolean metricsEnabled) {
+      this.metricsEnabled = metricsEnabled;
+      return this;
+    }
+
+    /**
+     * Specifies whether proper nouns should be detected in two passes, using an index of the whole
+     * input file. If unspecified, this will be {@code false}.
+     * @param properNounIndexing Should be {@code true} if proper nouns should be detected with an
+     * index.
+     * @return This builder.
+     */
+    public Builder withProperNounIndexing(boolean properNounIndexing) {
+      this.properNounIndexing = properNounIndexing;
+      return this;
+    }
+
+    /**
+     * Specifies whether the job should write checkpoints as it runs, so that it can be resumed. If
+     * unspecified, this will be {@code false}.
+     * @param checkpointing Should be {@code true} if the job should write checkpoints.
+     * @return This builder.
+     */
+    public Builder withCheckpointing(boolean checkpointing) {
+      this.checkpointing = checkpointing;
+      return this;
+    }
+
+    /**
+     * Specifies whether the job should carry on from the last checkpoint of an earlier run. A job
+     * that's resumed also writes checkpoints. If unspecified, this will be {@code false}.
+     * @param resuming Should be {@code true} if the job should be resumed.
+     * @return This builder.
+     */
+    public Builder withResuming(boolean resuming) {
+      this.resuming = resuming;
+      return this;
+    }
+
+    /**
+     * Specifies the number of buffers that the redacted text is written into before a dedicated
+     * thread writes it out. If unspecified, this will be 4.
+     * @param numberOfOutputBuffers The number of output buffers. Values less than 2 mean that the
+     * text is written out on the thread that redacts it.
+     * @return This builder.
+     */
+    public Builder withNumberOfOutputBuffers(int numberOfOutputBuffers) {
+      this.numberOfOutputBuffers = numberOfOutputBuffers;
+      return this;
+    }
+
+    /**
+     * Specifies the number of characters that each output buffer holds. If unspecified, this will
+     * be 65,536.
+     * @param outputBufferSize The size of each output buffer. Values less than 1 are treated as 1.
+     * @return This builder.
+     */
+    public Builder withOutputBufferSize(int outputBufferSize) {
+      this.outputBufferSize = Math.max(1, outputBufferSize);
+      return this;
+    }
+
+    /**
+     * Builds the options.
+     * @return The options.
+     */
+    public RedactionJobOptions build() {
+      return new RedactionJobOptions(this);
+    }
+  }
+}
@@ -0,0 +1,20 @@
+/**
+ * Notified by a {@link SimpleTextRedactor} whenever it applies a redaction. This allows the
+ * redactions to be counted without the redactor itself having to know how.
+ */
+public interface RedactionListener {
+
+  /**
+   * Called when a redacted phrase is matched and redacted.
+   * @param length The number of characters in the text that were matched.
+   */
+  void phraseRedacted(int length);
+
+  /**
+   * Called when a proper noun is detected and redacted.
+   * @param rule The rule that detected the proper noun.
+   * @param length The number of characters in the proper noun.
+   */
+  void properNounRedacted(ProperNounDetection rule, int length);
+
+}
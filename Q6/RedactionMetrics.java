@@ -0,0 +1,201 @@
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Counters that describe the progress of a redaction job. These are safe to update from
+ * multiple threads at once.</p>
+ * <p>The bytes in and out are the UTF-8 encoded sizes of the text given to and returned by the
+ * redactor. The time taken to redact each paragraph is recorded in a histogram, where each bucket
+ * holds the paragraphs that took less than twice the upper bound of the previous bucket.</p>
+ */
+public class RedactionMetrics implements RedactionListener {
+
+  private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+  private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+  private final long startNanos = System.nanoTime();
+  private final LongAdder bytesIn = new LongAdder();
+  private final LongAdder bytesOut = new LongAdder();
+  private final LongAdder paragraphs = new LongAdder();
+  private final LongAdder phraseMatches = new LongAdder();
+  private final LongAdder[] properNounMatches = new LongAdder[ProperNounDetection.values().length];
+  private final LongAdder outputWaitNanos = new LongAdder();
+
+  // Bucket i holds the paragraphs that took less than 2^i nanoseconds (and at least 2^(i-1))
+  private final AtomicLongArray paragraphNanosHistogram = new AtomicLongArray(Long.SIZE);
+
+  /**
+   * Creates a new set of metrics, with the clock for the throughput starting now.
+   */
+  public RedactionMetrics() {
+    for (int i = 0; i < properNounMatches.length; i++) {
+      properNounMatches[i] = new LongAdder();
+    }
+  }
+
+  @Override
+  public void phraseRedacted(int length) {
+    phraseMatches.increment();
+  }
+
+  @Override
+  public void properNounRedacted(ProperNounDetection rule, int length) {
+    properNounMatches[rule.ordinal()].increment();
+  }
+
+  /**
+   * Records that a paragraph has been redacted.
+   * @param bytesIn The size of the paragraph before the redaction, in UTF-8 encoded bytes.
+   * @param bytesOut The size of the paragraph after the redaction, in UTF-8 encoded bytes.
+   * @param nanos The time taken to redact the paragraph.
+   */
+  public void paragraphRedacted(long bytesIn, long bytesOut, long nanos) {
+    this.bytesIn.add(bytesIn);
+    this.bytesOut.add(bytesOut);
+    paragraphs.increment();
+    paragraphNanosHistogram.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(nanos));
+  }
+
+  /**
+   * Records time that the redaction spent waiting for the output to be written.
+   * @param nanos The time spent waiting.
+   */
+  public void outputWaited(long nanos) {
+    outputWaitNanos.add(nanos);
+  }
+
+  /**
+   * Gets the number of bytes given to the redactor.
+   * @return The number of bytes in.
+   */
+  public long getBytesIn() {
+    return bytesIn.sum();
+  }
+
+  /**
+   * Gets the number of bytes returned by the redactor.
+   * @return The number of bytes out.
+   */
+  public long getBytesOut() {
+    return bytesOut.sum();
+  }
+
+  /**
+   * Gets the number of paragraphs that have been redacted.
+   * @return The number of paragraphs.
+   */
+  public long getParagraphs() {
+    return paragraphs.sum();
+  }
+
+  /**
+   * Gets the number of redacted phrases that were matched.
+   * @return The number of phrase matches.
+   */
+  public long getPhraseMatches() {
+    return phraseMatches.sum();
+  }
+
+  /**
+   * Gets the number of proper nouns that were detected by the given rule.
+   * @param rule The rule.
+   * @return The number of proper nouns.
+   */
+  public long getProperNounMatches(ProperNounDetection rule) {
+    return properNounMatches[rule.ordinal()].sum();
+  }
+
+  /**
+   * Gets the time that the redaction has spent waiting for the output to be written.
+   * @return The time spent waiting, in seconds.
+   */
+  public double getOutputWaitSeconds() {
+    return outputWaitNanos.sum() / NANOS_PER_SECOND;
+  }
+
+  /**
+   * Gets the number of seconds since these metrics were created.
+   * @return The elapsed time in seconds.
+   */
+  public double getElapsedSeconds() {
+    return (System.nanoTime() - startNanos) / NANOS_PER_SECOND;
+  }
+
+  /**
+   * Gets the average rate at which text has been given to the redactor since these metrics were
+   * created.
+   * @return The throughput, in MB/s.
+   */
+  public double getMegabytesPerSecond() {
+    double elapsedSeconds = getElapsedSeconds();
+    return elapsedSeconds > 0.0 ? getBytesIn() / BYTES_PER_MEGABYTE / elapsedSeconds : 0.0;
+  }
+
+  /**
+   * Gets a machine-readable summary of the metrics, as a JSON object.
+   * @return The summary.
+   */
+  public String toJson() {
+    StringBuilder json = new StringBuilder("{");
+    json.append("\"bytesIn\":").append(getBytesIn());
+    json.append(",\"bytesOut\":").append(getBytesOut());
+    json.append(",\"paragraphs\":").append(getParagraphs());
+    json.append(",\"phraseMatches\":").append(getPhraseMatches());
+
+    json.append(",\"properNounMatches\":{");
+    ProperNounDetection[] rules = ProperNounDetection.values();
+    for (int i = 0; i < rules.length; i++) {
+      json.append(i == 0 ? "" : ",")
+          .append('"').append(rules[i].name()).append("\":")
+          .append(getProperNounMatches(rules[i]));
+    }
+    json.append('}');
+
+    json.append(String.format(Locale.ROOT, ",\"elapsedSeconds\":%.3f", getElapsedSeconds()));
+    json.append(
+        String.format(Locale.ROOT, ",\"megabytesPerSecond\":%.3f", getMegabytesPerSecond())
+    );
+    json.append(
+        String.format(Locale.ROOT, ",\"outputWaitSeconds\":%.3f", getOutputWaitSeconds())
+    );
+
+    // Only include the buckets that have been used
+    json.append(",\"paragraphNanosHistogram\":[");
+    boolean firstBucket = true;
+    for (int bucket = 0; bucket < paragraphNanosHistogram.length(); bucket++) {
+      long count = paragraphNanosHistogram.get(bucket);
+      if (count > 0) {
+        long upperBound = bucket < Long.SIZE - 1 ? 1L << bucket : Long.MAX_VALUE;
+        json.append(firstBucket ? "" : ",")
+            .append("{\"lessThanNanos\":").append(upperBound)
+            .append(",\"count\":").append(count).append('}');
+        firstBucket = false;
+      }
+    }
+    json.append("]}");
+    return json.toString();
+  }
+
+  /**
+   * Calculates the number of bytes needed to encode the characters as UTF-8.
+   * @param text The text.
+   * @param start The start index (inclusive) of the characters.
+   * @param end The end index (exclusive) of the characters.
+   * @return The number of bytes.
+   */
+  static long utf8Length(CharSequence text, int start, int end) {
+    long length = 0L;
+    for (int i = start; i < end; i++) {
+      char character = text.charAt(i);
+      if (character < 0x80) {
+        length++;
+      } else if (character < 0x800 || Character.isSurrogate(character)) {
+        length += 2; // each half of a surrogate pair accounts for two of its four bytes
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+}
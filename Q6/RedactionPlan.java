@@ -0,0 +1,228 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <p>Everything that has to be worked out from a {@link RedactionConfiguration} before any text
+ * can be redacted with it: the table of word separators, the redacted phrases indexed by their
+ * case-folded first character and, for an {@link AhoCorasickRedactor}, the compiled automaton.</p>
+ * <p>Plans are immutable and thread safe, so a single plan can be shared by every redactor whose
+ * configuration is equal. Plans should usually be retrieved from a {@link RedactionPlanCache}
+ * rather than being created directly.</p>
+ */
+public class RedactionPlan {
+
+  private final RedactionConfiguration configuration;
+  private final BitSet wordSeparators;
+  private final char[] phraseIndexKeys;
+  private final List<List<String>> phraseIndexBuckets = new ArrayList<>();
+  private final List<int[]> phraseIndexBucketIds = new ArrayList<>();
+  private final LinearPhraseMatcher linearPhraseMatcher;
+  private final CandidateScanner candidateScanner;
+
+  // The automaton is only compiled if an Aho-Corasick redactor asks for it, as it's expensive for
+  // large dictionaries
+  private volatile AhoCorasickPhraseMatcher ahoCorasickPhraseMatcher;
+
+  /**
+   * Creates a new plan for the configuration.
+   * @param configuration The configuration.
+   * @throws NullPointerException Thrown if {@code configuration == null}.
+   */
+  public RedactionPlan(RedactionConfiguration configuration) throws NullPointerException {
+    this(configuration, null);
+  }
+
+  /**
+   * Creates a new plan for the configuration, using word separators that have already been worked
+   * out, e.g. by an earlier plan for the same configuration.
+   * @param configuration The configuration.
+   * @param wordSeparators The word separators, as returned by {@link #getWordSeparators()}, or
+   * {@code null} to share the configuration's.
+   * @throws NullPointerException Thrown if {@code configuration == null}.
+   */
+  RedactionPlan(RedactionConfiguration configuration, BitSet wordSeparators)
+      throws NullPointerException {
+    this.configuration = Objects.requireNonNull(configuration, "Configuration is null");
+    this.wordSeparators = wordSeparators == null
+        ? configuration.getWordSeparators()
+        : (BitSet) wordSeparators.clone();
+    this.phraseIndexKeys = buildPhraseIndex();
+    this.linearPhraseMatcher = new LinearPhraseMatcher(this);
+    this.candidateScanner = CandidateScanner.forPlan(this);
+  }
+
+  /**
+   * Groups the phrases by their first character, so that only the phrases that could possibly
+   * match at a given position in the text have to be tried. The keys are case-folded if phrases
+   * should be matched case-insensitively. Phrases never start with whitespace, so the rule that a
+   * space matches any run of whitespace doesn't affect the first character.
+   * @return The sorted first characters, where the phrases for the character at each index are in
+   * the bucket at the same index. The index of each phrase in the configuration's phrases is kept
+   * alongside it, to identify the phrase that was matched.
+   */
+  private char[] buildPhraseIndex() {
+    // Phrases are added to the buckets in order, so each bucket is also sorted longest first
+    List<String> redactedPhrases = configuration.getRedactedPhrases();
+    char[] keys = new char[redactedPhrases.size()];
+    List<List<Integer>> bucketIds = new ArrayList<>();
+    int numberOfKeys = 0;
+    for (int phraseId = 0; phraseId < redactedPhrases.size(); phraseId++) {
+      String redactedPhrase = redactedPhrases.get(phraseId);
+      // Empty phrases can never result in a redaction
+      if (redactedPhrase.isEmpty()) {
+        continue;
+      }
+      char key = foldCase(redactedPhrase.charAt(0));
+      int keyIndex = Arrays.binarySearch(keys, 0, numberOfKeys, key);
+      if (keyIndex < 0) {
+        // Insert the new key, keeping the keys sorted
+        keyIndex = -(keyIndex + 1);
+        System.arraycopy(keys, keyIndex, keys, keyIndex + 1, numberOfKeys - keyIndex);
+        keys[keyIndex] = key;
+        phraseIndexBuckets.add(keyIndex, new ArrayList<>());
+        bucketIds.add(keyIndex, new ArrayList<>());
+        numberOfKeys++;
+      }
+      phraseIndexBuckets.get(keyIndex).add(redactedPhrase);
+      bucketIds.get(keyIndex).add(phraseId);
+    }
+
+    for (int i = 0; i < phraseIndexBuckets.size(); i++) {
+      phraseIndexBuckets.set(i, Collections.unmodifiableList(phraseIndexBuckets.get(i)));
+      phraseIndexBucketIds.add(bucketIds.get(i).stream().mapToInt(Integer::intValue).toArray());
+    }
+    return Arrays.copyOf(keys, numberOfKeys);
+  }
+
+  /**
+   * Gets the configuration that this plan was created for.
+   * @return The configuration.
+   */
+  public RedactionConfiguration getConfiguration() {
+    return configuration;
+  }
+
+  /**
+   * Checks if the given character is a word separator according to the configuration. This
+   * produces the same result as {@link RedactionConfiguration#isWordSeparator(char)}.
+   * @param character The character to assess.
+   * @return {@code true} if and only if the given character is a word separator.
+   */
+  public boolean isWordSeparator(char character) {
+    return Character.isSurrogate(character) ?
+        configuration.isWordSeparator(character)
+        : wordSeparators.get(character);
+  }
+
+  /**
+   * Gets the characters in the Basic Multilingual Plane, other than surrogates, that are word
+   * separators.
+   * @return A copy of the word separators.
+   */
+  BitSet getWordSeparators() {
+    return (BitSet) wordSeparators.clone();
+  }
+
+  /**
+   * Case-folds the character if redacted phrases should be matched case-insensitively.
+   * @param character The character.
+   * @return The folded character, or the character itself if phrases are matched case-sensitively.
+   * @see RedactionConfiguration#foldCase(char)
+   */
+  public char foldCase(char character) {
+    return configuration.foldCase(character);
+  }
+
+  /**
+   * Gets the phrases that could match text starting with the given character, i.e. those whose
+   * first character is the same, taking {@link RedactionConfiguration#isMatchRedactedWordCase()}
+   * into account. As for {@link RedactionConfiguration#getRedactedPhrases()}, the longest phrases
+   * are returned first.
+   * @param character The first character of the text.
+   * @return The phrases that could match. This list can't be modified.
+   */
+  public List<String> getRedactedPhrasesStartingWith(char character) {
+    int keyIndex = Arrays.binarySearch(phraseIndexKeys, foldCase(character));
+    return keyIndex < 0 ? Collections.emptyList() : phraseIndexBuckets.get(keyIndex);
+  }
+
+  /**
+   * Identifies the redacted phrase that was matched between the given indices of the text. If
+   * there's more than one, such as "Anna" and "anna" when phrases are matched case-insensitively,
+   * the longest is chosen, as it is when matching. This tries each phrase that could match in turn,
+   * so should only be used for text that's known to be a match.
+   * @param text The text that the phrase was matched in.
+   * @param startIndex The index (inclusive) that the match starts at.
+   * @param endIndex The index (exclusive) that the match ends at.
+   * @return The index of the phrase in {@link RedactionConfiguration#getRedactedPhrases()}, or
+   * {@code -1} if none of those phrases match exactly between the indices.
+   * @throws NullPointerException Thrown if {@code text == null}.
+   * @throws IndexOutOfBoundsException Thrown if {@code startIndex < 0 || startIndex >=
+   * text.length()}.
+   */
+  public int getPhraseId(CharSequence text, int startIndex, int endIndex)
+      throws NullPointerException, IndexOutOfBoundsException {
+    int keyIndex = Arrays.binarySearch(phraseIndexKeys, foldCase(text.charAt(startIndex)));
+    if (keyIndex < 0) {
+      return -1;
+    }
+    List<String> candidatePhrases = phraseIndexBuckets.get(keyIndex);
+    for (int i = 0; i < candidatePhrases.size(); i++) {
+      if (linearPhraseMatcher.getMatchEndIndex(text, startIndex, candidatePhrases.get(i))
+          == endIndex
+      ) {
+        return phraseIndexBucketIds.get(keyIndex)[i];
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the length of the longest redacted phrase.
+   * @return The length of the longest phrase, or {@code 0} if there are no phrases.
+   */
+  public int getLongestPhraseLength() {
+    // The phrases are sorted longest first
+    List<String> redactedPhrases = configuration.getRedactedPhrases();
+    return redactedPhrases.isEmpty() ? 0 : redactedPhrases.get(0).length();
+  }
+
+  /**
+   * Gets the scanner that finds the indices at which a redaction could start.
+   * @return The scanner.
+   */
+  public CandidateScanner getCandidateScanner() {
+    return candidateScanner;
+  }
+
+  /**
+   * Gets the matcher that tries each of the redacted phrases in turn.
+   * @return The matcher.
+   */
+  public LinearPhraseMatcher getLinearPhraseMatcher() {
+    return linearPhraseMatcher;
+  }
+
+  /**
+   * Gets the matcher that finds all of the redacted phrases with an Aho-Corasick automaton. The
+   * automaton is compiled the first time this is called.
+   * @return The matcher.
+   */
+  public AhoCorasickPhraseMatcher getAhoCorasickPhraseMatcher() {
+    AhoCorasickPhraseMatcher matcher = ahoCorasickPhraseMatcher;
+    if (matcher == null) {
+      synchronized (this) {
+        matcher = ahoCorasickPhraseMatcher;
+        if (matcher == null) {
+          matcher = new AhoCorasickPhraseMatcher(this);
+          ahoCorasickPhraseMatcher = matcher;
+        }
+      }
+    }
+    return matcher;
+  }
+}
@@ -0,0 +1,103 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * <p>A cache of {@link RedactionPlan} objects, keyed by the {@link RedactionConfiguration} that
+ * they were created for. Creating a plan for a large dictionary is expensive, so redactors with
+ * equal configurations share the same plan rather than each creating their own.</p>
+ * <p>The cache holds a limited number of plans. Once it's full, the plan that was least recently
+ * used is evicted to make room for the next one.</p>
+ * <p>This class is thread safe. Plans are created outside of the lock so that one slow compilation
+ * doesn't hold up requests for other configurations.</p>
+ */
+public class RedactionPlanCache {
+
+  private static final int DEFAULT_MAXIMUM_SIZE = 16;
+  private static final RedactionPlanCache DEFAULT = new RedactionPlanCache(DEFAULT_MAXIMUM_SIZE);
+
+  private final int maximumSize;
+  private final Map<RedactionConfiguration, RedactionPlan> plans;
+
+  /**
+   * Creates a new, empty cache.
+   * @param maximumSize The maximum number of plans that the cache should hold.
+   * @throws IllegalArgumentException Thrown if {@code maximumSize < 1}.
+   */
+  public RedactionPlanCache(int maximumSize) throws IllegalArgumentException {
+    if (maximumSize < 1) {
+      throw new IllegalArgumentException("Maximum size must be at least 1");
+    }
+    this.maximumSize = maximumSize;
+
+    // Iterating in access order means that the eldest entry is the least recently used one
+    this.plans = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<RedactionConfiguration, RedactionPlan> eldest) {
+        return size() > RedactionPlanCache.this.maximumSize;
+      }
+    };
+  }
+
+  /**
+   * Gets the cache that is shared by the whole process. This is used by redactors that are created
+   * from a {@link RedactionConfiguration}.
+   * @return The shared cache.
+   */
+  public static RedactionPlanCache getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Gets the plan for the configuration, creating it if it isn't already in the cache.
+   * @param configuration The configuration.
+   * @return The plan for the configuration.
+   * @throws NullPointerException Thrown if {@code configuration == null}.
+   */
+  public RedactionPlan getPlan(RedactionConfiguration configuration) throws NullPointerException {
+    Objects.requireNonNull(configuration, "Configuration is null");
+
+    synchronized (plans) {
+      RedactionPlan plan = plans.get(configuration);
+      if (plan != null) {
+        return plan;
+      }
+    }
+
+    RedactionPlan plan = new RedactionPlan(configuration);
+
+    // Another thread may have created a plan for the same configuration in the meantime. If so,
+    // use that one so that there's only ever one plan for each configuration in the cache
+    synchronized (plans) {
+      RedactionPlan existingPlan = plans.putIfAbsent(configuration, plan);
+      return existingPlan == null ? plan : existingPlan;
+    }
+  }
+
+  /**
+   * Gets the number of plans in the cache.
+   * @return The number of plans.
+   */
+  public int size() {
+    synchronized (plans) {
+      return plans.size();
+    }
+  }
+
+  /**
+   * Gets the maximum number of plans that the cache will hold.
+   * @return The maximum size of the cache.
+   */
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  /**
+   * Removes all of the plans from the cache.
+   */
+  public void clear() {
+    synchronized (plans) {
+      plans.clear();
+    }
+  }
+}
@@ -0,0 +1,333 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Runs the redactor as a small HTTP server, so that it can sit alongside another process rather
+ * than being run as a batch job.</p>
+ * <p>Text that is POSTed to {@code /redact} is redacted as it's read, and the redacted text is
+ * streamed back in the response. Both are UTF-8 encoded. The metrics for every request since the
+ * server started are available as JSON from {@code /metrics}.</p>
+ * <p>Each request is handled on its own virtual thread where the runtime supports them, so
+ * thousands of small requests can be in flight without a platform thread for each one. Otherwise,
+ * requests are shared between a fixed pool of platform threads.</p>
+ * <p>Usage: {@code java RedactionServer [--port=N] [--redact=FILE] [--watch]}. The server only
+ * listens on the loopback address, and uses the same settings as {@link CWK2Q6}. The file can also
+ * be a dictionary compiled by {@code java CWK2Q6 --compile=FILE}, which loads far more quickly.
+ * With {@code --watch}, changes to the file are picked up without a restart.</p>
+ */
+public class RedactionServer {
+
+  private static final int DEFAULT_PORT = 8080;
+  private static final String DEFAULT_REDACTED_PHRASES_FILENAME = "./redact.txt";
+
+  // The number of platform threads per processor when virtual threads aren't available. Requests
+  // are mostly spent redacting rather than waiting, so there's little to gain from more
+  private static final int PLATFORM_THREADS_PER_PROCESSOR = 2;
+
+  // How long to let requests that are in flight finish when the server is stopped
+  private static final int STOP_DELAY_SECONDS = 1;
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final Redactor redactor;
+  private final RedactionMetrics metrics;
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder activeRequests = new LongAdder();
+  private final LongAdder failedRequests = new LongAdder();
+
+  /**
+   * Creates a new server for the configuration, bound to the given address. The server doesn't
+   * accept any requests until it's started.
+   * @param configuration The configuration that specifies what and how redactions should be found
+   * and replaced.
+   * @param address The address to listen on. A port of {@code 0} picks any free port.
+   * @throws NullPointerException Thrown if {@code configuration == null || address == null}.
+   * @throws IOException Thrown if the server can't be bound to the address.
+   */
+  public RedactionServer(RedactionConfiguration configuration, InetSocketAddress address)
+      throws NullPointerException, IOException {
+    this(configuration, new RedactionMetrics(), address);
+  }
+
+  // Compiles the configuration now, so that the first request doesn't have to
+  private RedactionServer(
+      RedactionConfiguration configuration, RedactionMetrics metrics, InetSocketAddress address
+  ) throws NullPointerException, IOException {
+    this(new AhoCorasickRedactor(configuration, metrics), metrics, address);
+  }
+
+  /**
+   * Creates a new server for the redactor, bound to the given address. The server doesn't accept
+   * any requests until it's started.
+   * @param redactor The redactor used for every request. This must be safe to use from multiple
+   * threads.
+   * @param metrics The metrics that each request is recorded in. The number of matches can only be
+   * recorded by the redactor, so it should have the same metrics as its {@link RedactionListener}.
+   * @param address The address to listen on. A port of {@code 0} picks any free port.
+   * @throws NullPointerException Thrown if {@code redactor == null || metrics == null || address ==
+   * null}.
+   * @throws IOException Thrown if the server can't be bound to the address.
+   */
+  public RedactionServer(Redactor redactor, RedactionMetrics metrics, InetSocketAddress address)
+      throws NullPointerException, IOException {
+    this.redactor = Objects.requireNonNull(redactor, "Redactor is null");
+    this.metrics = Objects.requireNonNull(metrics, "Metrics are null");
+    Objects.requireNonNull(address, "Address is null");
+
+    this.executor = createExecutor();
+    this.server = HttpServer.create(address, 0);
+    server.setExecutor(executor);
+    server.createContext("/redact", this::handleRedact);
+    server.createContext("/metrics", this::handleMetrics);
+  }
+
+  /**
+   * Creates the executor that requests are handled on. Virtual threads were only added in Java
+   * 21, so they're created reflectively to keep this compiling on earlier versions.
+   * @return An executor that starts a virtual thread per task if the runtime supports it, or a
+   * fixed pool of platform threads otherwise.
+   */
+  private static ExecutorService createExecutor() {
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newFixedThreadPool(
+          Runtime.getRuntime().availableProcessors() * PLATFORM_THREADS_PER_PROCESSOR
+      );
+    }
+  }
+
+  /**
+   * Starts accepting requests.
+   */
+  public void start() {
+    server.start();
+  }
+
+  /**
+   * Stops accepting requests, giving those in flight a short time to finish.
+   */
+  public void stop() {
+    server.stop(STOP_DELAY_SECONDS);
+    executor.shutdown();
+  }
+
+  /**
+   * Gets the address that the server is listening on. This is useful when the server was created
+   * with a port of {@code 0}.
+   * @return The address.
+   */
+  public InetSocketAddress getAddress() {
+    return server.getAddress();
+  }
+
+  /**
+   * Gets the metrics for every request that has been redacted.
+   * @return The metrics.
+   */
+  public RedactionMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Redacts the body of the request, streaming the redacted text back in the response.
+   * @param exchange The request and response.
+   * @throws IOException Thrown if there is a problem reading the request or writing the response.
+   */
+  private void handleRedact(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        sendMethodNotAllowed(exchange, "POST");
+        return;
+      }
+
+      requests.increment();
+      activeRequests.increment();
+      try {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        // A length of 0 means that the response is chunked, so it can be sent as it's redacted
+        exchange.sendResponseHeaders(200, 0);
+
+        CountingInputStream input = new CountingInputStream(exchange.getRequestBody());
+        CountingOutputStream output = new CountingOutputStream(exchange.getResponseBody());
+        long start = System.nanoTime();
+        try (
+            Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8);
+            Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8)
+        ) {
+          redactor.redact(reader, writer);
+        }
+        metrics.paragraphRedacted(input.bytes, output.bytes, System.nanoTime() - start);
+      } catch (IOException | RuntimeException e) {
+        // The status has already been sent, so closing the exchange early is the only way to tell
+        // the client that the response is incomplete
+        failedRequests.increment();
+        throw e;
+      } finally {
+        activeRequests.decrement();
+      }
+    }
+  }
+
+  /**
+   * Sends the metrics as JSON.
+   * @param exchange The request and response.
+   * @throws IOException Thrown if there is a problem writing the response.
+   */
+  private void handleMetrics(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        sendMethodNotAllowed(exchange, "GET");
+        return;
+      }
+
+      String json = "{\"requests\":" + requests.sum()
+          + ",\"activeRequests\":" + activeRequests.sum()
+          + ",\"failedRequests\":" + failedRequests.sum()
+          + ",\"redaction\":" + metrics.toJson() + "}";
+      byte[] body = json.getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    }
+  }
+
+  /**
+   * Rejects a request that used the wrong method.
+   * @param exchange The request and response.
+   * @param allowedMethod The method that the endpoint accepts.
+   * @throws IOException Thrown if there is a problem writing the response.
+   */
+  private static void sendMethodNotAllowed(HttpExchange exchange, String allowedMethod)
+      throws IOException {
+    exchange.getResponseHeaders().set("Allow", allowedMethod);
+    // A length of -1 means that there's no response body
+    exchange.sendResponseHeaders(405, -1);
+  }
+
+  /**
+   * Counts the bytes read from a stream.
+   */
+  private static class CountingInputStream extends FilterInputStream {
+    private long bytes = 0L;
+
+    // Creates a stream that counts the bytes read from the input
+    private CountingInputStream(InputStream input) {
+      super(input);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int result = super.read();
+      if (result >= 0) {
+        bytes++;
+      }
+      return result;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int bytesRead = super.read(buffer, offset, length);
+      if (bytesRead > 0) {
+        bytes += bytesRead;
+      }
+      return bytesRead;
+    }
+  }
+
+  /**
+   * Counts the bytes written to a stream.
+   */
+  private static class CountingOutputStream extends FilterOutputStream {
+    private long bytes = 0L;
+
+    // Creates a stream that counts the bytes written to the output
+    private CountingOutputStream(OutputStream output) {
+      super(output);
+    }
+
+    @Override
+    public void write(int value) throws IOException {
+      out.write(value);
+      bytes++;
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+      // FilterOutputStream would otherwise write the bytes one at a time
+      out.write(buffer, offset, length);
+      bytes += length;
+    }
+  }
+
+  /**
+   * Loads a redactor with the same settings as {@link CWK2Q6}, or from a dictionary that has been
+   * compiled with them. The plan isn't shared through the {@link RedactionPlanCache}, as the cache
+   * would otherwise keep hold of every version of the phrases that has been loaded.
+   * @param redactedPhrasesFile The file that contains the redacted phrases, or a compiled
+   * dictionary.
+   * @param metrics The metrics that each redaction is recorded in.
+   * @return The redactor.
+   * @throws IOException Thrown if there is a problem reading the file.
+   */
+  private static Redactor loadRedactor(Path redactedPhrasesFile, RedactionMetrics metrics)
+      throws IOException {
+    if (CompactPhraseDictionary.isCompiledDictionary(redactedPhrasesFile)) {
+      return new CompactRedactor(CompactPhraseDictionary.load(redactedPhrasesFile), metrics);
+    }
+    RedactionConfiguration configuration =
+        CWK2Q6.buildRedactionConfigurationFromFile(redactedPhrasesFile.toString());
+    return new AhoCorasickRedactor(new RedactionPlan(configuration), metrics);
+  }
+
+  public static void main(String[] args) throws IOException {
+    int port = DEFAULT_PORT;
+    String redactedPhrasesFilename = DEFAULT_REDACTED_PHRASES_FILENAME;
+    boolean watch = false;
+
+    for (String arg : args) {
+      if (arg.startsWith("--port=")) {
+        port = Integer.parseInt(arg.substring("--port=".length()));
+      } else if (arg.startsWith("--redact=")) {
+        redactedPhrasesFilename = arg.substring("--redact=".length());
+      } else if (arg.equals("--watch")) {
+        watch = true;
+      } else {
+        throw new IllegalArgumentException("Unknown argument: " + arg);
+      }
+    }
+
+    RedactionMetrics metrics = new RedactionMetrics();
+    Path redactedPhrasesFile = Path.of(redactedPhrasesFilename);
+    Redactor redactor = watch
+        ? new ReloadingRedactor(redactedPhrasesFile, file -> loadRedactor(file, metrics))
+        : loadRedactor(redactedPhrasesFile, metrics);
+
+    RedactionServer server = new RedactionServer(
+        redactor, metrics, new InetSocketAddress(InetAddress.getLoopbackAddress(), port)
+    );
+    Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    server.start();
+    System.out.println("Listening on " + server.getAddress());
+  }
+}
@@ -0,0 +1,169 @@
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>Where the redactions in an item of text are, and why they were made, as reported by {@link
+ * SimpleTextRedactor#findRedactions(CharSequence, RedactionSpans)}. This is useful when the
+ * redactions are needed for an audit or to highlight the text, rather than the redacted text
+ * itself.</p>
+ * <p>Each span has the offset of its first character, its length in characters and the reason
+ * that it was redacted. The spans are stored column by column in primitive arrays, so millions of
+ * them can be held without creating an object for each. The arrays grow as spans are added, and
+ * are kept when the spans are {@linkplain #clear() cleared}, so the same instance can be reused
+ * for each item of text.</p>
+ * <p>A reason is either the ID of the redacted phrase that was matched, which is never negative,
+ * or a negative number that stands for a proper noun rule or a phrase that couldn't be
+ * identified. The reasons can be interpreted with {@link #isPhrase(int)} and {@link
+ * #getProperNounRule(int)}.</p>
+ * <p>This class isn't thread safe.</p>
+ */
+public class RedactionSpans {
+
+  /**
+   * The reason given for a redacted phrase that isn't one of the phrases in the redactor's
+   * configuration, such as one from a {@link CompactPhraseDictionary}.
+   */
+  public static final int UNIDENTIFIED_PHRASE = -1;
+
+  // The reasons for proper nouns count down from here, one for each rule
+  private static final int FIRST_PROPER_NOUN_REASON = -2;
+
+  private static final ProperNounDetection[] PROPER_NOUN_RULES = ProperNounDetection.values();
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private int[] offsets = new int[INITIAL_CAPACITY];
+  private int[] lengths = new int[INITIAL_CAPACITY];
+  private int[] reasons = new int[INITIAL_CAPACITY];
+  private int numberOfSpans = 0;
+
+  /**
+   * Adds a span.
+   * @param offset The index of the first character of the span.
+   * @param length The number of characters in the span.
+   * @param reason The reason that the span was redacted.
+   */
+  void add(int offset, int length, int reason) {
+    if (numberOfSpans == offsets.length) {
+      int capacity = numberOfSpans * 2;
+      offsets = Arrays.copyOf(offsets, capacity);
+      lengths = Arrays.copyOf(lengths, capacity);
+      reasons = Arrays.copyOf(reasons, capacity);
+    }
+    offsets[numberOfSpans] = offset;
+    lengths[numberOfSpans] = length;
+    reasons[numberOfSpans] = reason;
+    numberOfSpans++;
+  }
+
+  // Replaces the reason for a span that has already been added
+  void setReason(int index, int reason) {
+    reasons[index] = reason;
+  }
+
+  /**
+   * Removes all of the spans, keeping the space that they took up for the next spans.
+   */
+  public void clear() {
+    numberOfSpans = 0;
+  }
+
+  /**
+   * Gets the number of spans.
+   * @return The number of spans.
+   */
+  public int getNumberOfSpans() {
+    return numberOfSpans;
+  }
+
+  /**
+   * Gets the offset of a span.
+   * @param index The index of the span.
+   * @return The index of the first character of the span in its text.
+   * @throws IndexOutOfBoundsException Thrown if {@code index < 0 || index >=
+   * getNumberOfSpans()}.
+   */
+  public int getOffset(int index) throws IndexOutOfBoundsException {
+    return offsets[Objects.checkIndex(index, numberOfSpans)];
+  }
+
+  /**
+   * Gets the length of a span. The characters in the span that are whitespace may not have been
+   * replaced, as for a redacted phrase that's made up of several words.
+   * @param index The index of the span.
+   * @return The number of characters in the span.
+   * @throws IndexOutOfBoundsException Thrown if {@code index < 0 || index >=
+   * getNumberOfSpans()}.
+   */
+  public int getLength(int index) throws IndexOutOfBoundsException {
+    return lengths[Objects.checkIndex(index, numberOfSpans)];
+  }
+
+  /**
+   * Gets the reason that a span was redacted.
+   * @param index The index of the span.
+   * @return The reason.
+   * @throws IndexOutOfBoundsException Thrown if {@code index < 0 || index >=
+   * getNumberOfSpans()}.
+   */
+  public int getReason(int index) throws IndexOutOfBoundsException {
+    return reasons[Objects.checkIndex(index, numberOfSpans)];
+  }
+
+  /**
+   * Gets the offsets of all of the spans, in the order that they were added.
+   * @return A copy of the offsets.
+   */
+  public int[] getOffsets() {
+    return Arrays.copyOf(offsets, numberOfSpans);
+  }
+
+  /**
+   * Gets the lengths of all of the spans, in the order that they were added.
+   * @return A copy of the lengths.
+   */
+  public int[] getLengths() {
+    return Arrays.copyOf(lengths, numberOfSpans);
+  }
+
+  /**
+   * Gets the reasons for all of the spans, in the order that they were added.
+   * @return A copy of the reasons.
+   */
+  public int[] getReasons() {
+    return Arrays.copyOf(reasons, numberOfSpans);
+  }
+
+  /**
+   * Gets the reason given for a proper noun.
+   * @param rule The rule that detected the proper noun.
+   * @return The reason.
+   * @throws NullPointerException Thrown if {@code rule == null}.
+   */
+  public static int getProperNounReason(ProperNounDetection rule) throws NullPointerException {
+    return FIRST_PROPER_NOUN_REASON - Objects.requireNonNull(rule, "Rule is null").ordinal();
+  }
+
+  /**
+   * Checks whether a reason is for a redacted phrase. If the reason isn't {@link
+   * #UNIDENTIFIED_PHRASE}, it's the index of the phrase in {@link
+   * RedactionConfiguration#getRedactedPhrases()}.
+   * @param reason The reason.
+   * @return {@code true} if the reason is for a redacted phrase.
+   */
+  public static boolean isPhrase(int reason) {
+    return reason >= UNIDENTIFIED_PHRASE;
+  }
+
+  /**
+   * Gets the proper noun rule that a reason is for.
+   * @param reason The reason.
+   * @return The rule, or {@code null} if the reason isn't for a proper noun.
+   */
+  public static ProperNounDetection getProperNounRule(int reason) {
+    int ruleIndex = FIRST_PROPER_NOUN_REASON - reason;
+    return ruleIndex >= 0 && ruleIndex < PROPER_NOUN_RULES.length
+        ? PROPER_NOUN_RULES[ruleIndex]
+        : null;
+  }
+}
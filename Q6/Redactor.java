@@ -1,3 +1,9 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Objects;
+
 /**
  * Responsible for stripping undesirable contents from text.
  */
@@ -10,4 +16,69 @@ public interface Redactor {
    */
   String redact(String text);
 
+  /**
+   * Redacts undesirable contents from the text, appending the result to the output. By default,
+   * this just appends the result of {@link #redact(String)}, but implementations may override this
+   * to avoid building the intermediate string.
+   * @param text The text to be stripped of undesirable content.
+   * @param output The destination for the result of the redaction.
+   * @throws IOException Thrown if there is a problem appending to the output.
+   */
+  default void redact(CharSequence text, Appendable output) throws IOException {
+    output.append(redact(text.toString()));
+  }
+
+  /**
+   * Starts a session that redacts a stream of text, writing the results to the output. By default,
+   * the session holds on to all of the text until it's finished, then redacts it in one go.
+   * Implementations may override this to write the results out as they go.
+   * @param output The destination for the result of the redaction.
+   * @return The session.
+   * @throws NullPointerException Thrown if {@code output == null}.
+   */
+  default RedactorSession startSession(Appendable output) throws NullPointerException {
+    Objects.requireNonNull(output, "Output is null");
+    return new RedactorSession() {
+      private StringBuilder text = new StringBuilder();
+
+      @Override
+      public void feed(CharSequence text) throws IOException, IllegalStateException {
+        Objects.requireNonNull(text, "Text is null");
+        if (this.text == null) {
+          throw new IllegalStateException("Session has already been finished");
+        }
+        this.text.append(text);
+      }
+
+      @Override
+      public void finish() throws IOException, IllegalStateException {
+        if (text == null) {
+          throw new IllegalStateException("Session has already been finished");
+        }
+        redact(text, output);
+        text = null;
+      }
+    };
+  }
+
+  /**
+   * Redacts all of the text from the input, writing the result to the output. The text is read in
+   * pieces and passed to a {@link #startSession(Appendable) session}, so it doesn't have to be
+   * split into paragraphs or held in memory all at once, provided that the implementation's
+   * session writes its results out as it goes.
+   * @param input The source of the text to be stripped of undesirable content.
+   * @param output The destination for the result of the redaction.
+   * @throws IOException Thrown if there is a problem reading from the input or writing to the
+   * output.
+   */
+  default void redact(Reader input, Writer output) throws IOException {
+    RedactorSession session = startSession(output);
+    char[] buffer = new char[8192];
+    int charactersRead;
+    while ((charactersRead = input.read(buffer)) >= 0) {
+      session.feed(CharBuffer.wrap(buffer, 0, charactersRead));
+    }
+    session.finish();
+  }
+
 }
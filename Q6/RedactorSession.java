@@ -0,0 +1,30 @@
+import java.io.IOException;
+
+/**
+ * <p>Redacts a stream of text that is pushed to it piece by piece, writing the results to the
+ * output that the session was started with. The text can be split at any point, and the result is
+ * the same as if all of the text had been redacted in one go.</p>
+ * <p>Sessions are created by {@link Redactor#startSession(Appendable)}. A session should only be
+ * used for one stream of text, and isn't thread safe.</p>
+ */
+public interface RedactorSession {
+
+  /**
+   * Adds the next piece of the text to the session. Some or all of the redacted text may be written
+   * to the output before this returns. Any text that could still be affected by the text that
+   * follows it is held back until more text is fed in or the session is finished. Text that is
+   * held back is copied, so the caller is free to reuse the text once this returns.
+   * @param text The next piece of the text.
+   * @throws IOException Thrown if there is a problem writing to the output.
+   * @throws IllegalStateException Thrown if the session has already been finished.
+   */
+  void feed(CharSequence text) throws IOException, IllegalStateException;
+
+  /**
+   * Marks the end of the text, writing any redacted text that was held back to the output.
+   * @throws IOException Thrown if there is a problem writing to the output.
+   * @throws IllegalStateException Thrown if the session has already been finished.
+   */
+  void finish() throws IOException, IllegalStateException;
+
+}
@@ -0,0 +1,242 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>A {@link Redactor} that picks up changes to its redacted phrases file without a restart. The
+ * file's directory is watched in the background, and whenever the file changes a new redactor is
+ * loaded from it and published in place of the old one.</p>
+ * <p>Each call uses whichever redactor was current when it started, so calls that are in flight
+ * when the file changes finish with the old phrases, and later calls use the new ones. A session
+ * keeps the redactor that it was started with until it's finished. The current redactor is read
+ * from an atomic reference, so redacting never waits for a reload.</p>
+ * <p>A plain text file that's rewritten in place would load successfully part way through being
+ * written, with some of its phrases missing, and those phrases would then go unredacted. To avoid
+ * this, the file is only reloaded once it has stopped changing for a quiet period, and a reload is
+ * thrown away if the file changes again while it's being loaded. A program that pauses for longer
+ * than the quiet period part way through writing the file should instead write a temporary file in
+ * the same directory and rename it over the old one, which replaces the file in one step.</p>
+ * <p>If the file can't be loaded, the old redactor stays in place until the next change.</p>
+ * <p>This class is thread safe, provided that the redactors that it loads are.</p>
+ */
+public class ReloadingRedactor implements Redactor, Closeable {
+
+  // The default time that the file must stop changing for before it's reloaded
+  private static final long DEFAULT_QUIET_PERIOD_MILLIS = 500L;
+
+  private final Path redactedPhrasesFile;
+  private final Loader loader;
+  private final long quietPeriodNanos;
+  private final AtomicReference<Redactor> redactor;
+  private final WatchService watchService;
+  private final Thread watcherThread;
+  private final AtomicLong reloads = new AtomicLong();
+  private final AtomicLong failedReloads = new AtomicLong();
+
+  /**
+   * Creates a new redactor, loading it from the file straight away and then watching the file for
+   * changes. The file is reloaded once it has stopped changing for half a second.
+   * @param redactedPhrasesFile The file that contains the redacted phrases.
+   * @param loader Loads a redactor from the file. This is called on a background thread whenever
+   * the file changes.
+   * @throws NullPointerException Thrown if {@code redactedPhrasesFile == null || loader == null}.
+   * @throws IOException Thrown if the redactor can't be loaded, or the file can't be watched.
+   */
+  public ReloadingRedactor(Path redactedPhrasesFile, Loader loader)
+      throws NullPointerException, IOException {
+    this(redactedPhrasesFile, loader, DEFAULT_QUIET_PERIOD_MILLIS);
+  }
+
+  /**
+   * Creates a new redactor, loading it from the file straight away and then watching the file for
+   * changes.
+   * @param redactedPhrasesFile The file that contains the redacted phrases.
+   * @param loader Loads a redactor from the file. This is called on a background thread whenever
+   * the file changes.
+   * @param quietPeriodMillis The time that the file must stop changing for before it's reloaded, in
+   * milliseconds.
+   * @throws NullPointerException Thrown if {@code redactedPhrasesFile == null || loader == null}.
+   * @throws IllegalArgumentException Thrown if {@code quietPeriodMillis < 0}.
+   * @throws IOException Thrown if the redactor can't be loaded, or the file can't be watched.
+   */
+  public ReloadingRedactor(Path redactedPhrasesFile, Loader loader, long quietPeriodMillis)
+      throws NullPointerException, IllegalArgumentException, IOException {
+    if (quietPeriodMillis < 0L) {
+      throw new IllegalArgumentException("Quiet period must not be negative");
+    }
+    this.quietPeriodNanos = TimeUnit.MILLISECONDS.toNanos(quietPeriodMillis);
+    this.redactedPhrasesFile =
+        Objects.requireNonNull(redactedPhrasesFile, "Redacted phrases file is null")
+            .toAbsolutePath();
+    this.loader = Objects.requireNonNull(loader, "Loader is null");
+    this.redactor = new AtomicReference<>(loader.load(this.redactedPhrasesFile));
+
+    // Editors often replace a file rather than modifying it, so the whole directory is watched
+    this.watchService = FileSystems.getDefault().newWatchService();
+    this.redactedPhrasesFile.getParent().register(
+        watchService,
+        StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY
+    );
+
+    this.watcherThread = new Thread(this::watch, "redacted-phrases-watcher");
+    watcherThread.setDaemon(true);
+    watcherThread.start();
+  }
+
+  @Override
+  public String redact(String text) {
+    return redactor.get().redact(text);
+  }
+
+  @Override
+  public void redact(CharSequence text, Appendable output) throws IOException {
+    redactor.get().redact(text, output);
+  }
+
+  @Override
+  public RedactorSession startSession(Appendable output) throws NullPointerException {
+    return redactor.get().startSession(output);
+  }
+
+  /**
+   * Gets the number of times that the redactor has been reloaded since it was created.
+   * @return The number of successful reloads.
+   */
+  public long getReloads() {
+    return reloads.get();
+  }
+
+  /**
+   * Gets the number of times that the file changed but couldn't be loaded.
+   * @return The number of failed reloads.
+   */
+  public long getFailedReloads() {
+    return failedReloads.get();
+  }
+
+  /**
+   * Stops watching the file. The current redactor can still be used.
+   * @throws IOException Thrown if there is a problem closing the watch service.
+   */
+  @Override
+  public void close() throws IOException {
+    watchService.close();
+  }
+
+  /**
+   * Waits for changes to the file, reloading the redactor once the file has stopped changing. This
+   * runs until the watch service is closed.
+   */
+  private void watch() {
+    try {
+      while (true) {
+        if (isFileChanged(watchService.take())) {
+          waitUntilQuiet();
+          reload();
+        }
+      }
+    } catch (ClosedWatchServiceException | InterruptedException e) {
+      // The redactor has been closed, so stop watching
+    }
+  }
+
+  /**
+   * Checks whether any of the key's events are for the file, and then resets the key so that it
+   * receives further events.
+   * @param key The key for the file's directory.
+   * @return {@code true} if the file may have changed.
+   */
+  private boolean isFileChanged(WatchKey key) {
+    boolean fileChanged = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW
+          || redactedPhrasesFile.getFileName().equals(event.context())
+      ) {
+        fileChanged = true;
+      }
+    }
+    key.reset();
+    return fileChanged;
+  }
+
+  /**
+   * Waits until the file hasn't changed for the quiet period. A single save can produce many
+   * events, and a file that's written in place is only complete once they stop, so the redactor is
+   * only reloaded once for all of them.
+   * @throws InterruptedException Thrown if the thread is interrupted while waiting.
+   */
+  private void waitUntilQuiet() throws InterruptedException {
+    long deadline = System.nanoTime() + quietPeriodNanos;
+    long remainingNanos;
+    while ((remainingNanos = deadline - System.nanoTime()) > 0L) {
+      WatchKey key = watchService.poll(remainingNanos, TimeUnit.NANOSECONDS);
+      if (key != null && isFileChanged(key)) {
+        deadline = System.nanoTime() + quietPeriodNanos;
+      }
+    }
+  }
+
+  /**
+   * Loads a new redactor from the file and publishes it. If the file can't be loaded, or it changes
+   * while it's being loaded, the current redactor is kept. A change while loading also produces
+   * another event, so the file is loaded again once it has settled.
+   */
+  private void reload() {
+    try {
+      BasicFileAttributes attributesBeforeLoading = readAttributes();
+      Redactor loadedRedactor = loader.load(redactedPhrasesFile);
+      if (!isSameVersion(attributesBeforeLoading, readAttributes())) {
+        failedReloads.incrementAndGet();
+        System.err.println(
+            "Failed to reload " + redactedPhrasesFile + ": it changed while it was being loaded"
+        );
+        return;
+      }
+      redactor.set(loadedRedactor);
+      reloads.incrementAndGet();
+    } catch (IOException | RuntimeException e) {
+      failedReloads.incrementAndGet();
+      System.err.println("Failed to reload " + redactedPhrasesFile + ": " + e);
+    }
+  }
+
+  // Reads the size and modification time of the file
+  private BasicFileAttributes readAttributes() throws IOException {
+    return Files.readAttributes(redactedPhrasesFile, BasicFileAttributes.class);
+  }
+
+  // Checks whether the file has the same size and modification time at both points
+  private static boolean isSameVersion(BasicFileAttributes before, BasicFileAttributes after) {
+    return before.size() == after.size()
+        && before.lastModifiedTime().equals(after.lastModifiedTime());
+  }
+
+  /**
+   * Loads a redactor from a redacted phrases file.
+   */
+  @FunctionalInterface
+  public interface Loader {
+
+    /**
+     * Loads a redactor from the file.
+     * @param redactedPhrasesFile The file that contains the redacted phrases.
+     * @return The redactor.
+     * @throws IOException Thrown if there is a problem reading the file.
+     */
+    Redactor load(Path redactedPhrasesFile) throws IOException;
+
+  }
+}
@@ -0,0 +1,126 @@
+import java.util.BitSet;
+
+/**
+ * <p>A {@link CandidateScanner} that checks each character in turn.</p>
+ * <p>A redacted phrase can only start with a character that starts one of the phrases and, if full
+ * word matching is enabled, at the start of a word. A proper noun can only start with an uppercase
+ * letter at the start of a word. The characters that could start each are worked out up front, so
+ * that each character only needs a table lookup.</p>
+ */
+public class ScalarCandidateScanner implements CandidateScanner {
+
+  private final RedactionPlan plan;
+  private final boolean fullWordMatching;
+  private final BitSet phraseStartCharacters = new BitSet(Character.MAX_VALUE + 1);
+  private final BitSet properNounStartCharacters = new BitSet(Character.MAX_VALUE + 1);
+
+  /**
+   * Creates a new scanner for the plan.
+   * @param plan The plan for the configuration being used to redact the text.
+   */
+  public ScalarCandidateScanner(RedactionPlan plan) {
+    this(plan, getPhraseStartCharacters(plan));
+  }
+
+  /**
+   * Creates a new scanner for the plan, where the redacted phrases can start with different
+   * characters to those in the plan's configuration.
+   * @param plan The plan for the configuration being used to redact the text.
+   * @param phraseStartCharacters The characters that could start a redacted phrase.
+   */
+  ScalarCandidateScanner(RedactionPlan plan, BitSet phraseStartCharacters) {
+    this.plan = plan;
+    RedactionConfiguration configuration = plan.getConfiguration();
+    this.fullWordMatching = configuration.isFullWordMatching();
+    this.phraseStartCharacters.or(phraseStartCharacters);
+    if (!ProperNounDetection.DISABLED.equals(configuration.getProperNounDetection())) {
+      for (int character = Character.MIN_VALUE; character <= Character.MAX_VALUE; character++) {
+        if (Character.isUpperCase((char) character)) {
+          properNounStartCharacters.set(character);
+        }
+      }
+    }
+  }
+
+  // Finds the characters that could start one of the phrases in the plan
+  private static BitSet getPhraseStartCharacters(RedactionPlan plan) {
+    BitSet phraseStartCharacters = new BitSet(Character.MAX_VALUE + 1);
+    for (int character = Character.MIN_VALUE; character <= Character.MAX_VALUE; character++) {
+      if (!plan.getRedactedPhrasesStartingWith((char) character).isEmpty()) {
+        phraseStartCharacters.set(character);
+      }
+    }
+    return phraseStartCharacters;
+  }
+
+  @Override
+  public int findNextCandidate(char[] text, int fromIndex, int toIndex) {
+    for (int index = fromIndex; index < toIndex; index++) {
+      if (isCandidate(text, index)) {
+        return index;
+      }
+    }
+    return toIndex;
+  }
+
+  /**
+   * Checks if a redaction could start at the given index.
+   * @param text The text.
+   * @param index The index.
+   * @return {@code true} if a redaction could start at the index.
+   */
+  public boolean isCandidate(char[] text, int index) {
+    char character = text[index];
+    if (phraseStartCharacters.get(character)) {
+      return !fullWordMatching || isAtStartOfWord(text, index);
+    }
+    return properNounStartCharacters.get(character) && isAtStartOfWord(text, index);
+  }
+
+  /**
+   * Checks if a redaction could ever start with any of the characters in the range, regardless of
+   * where they are.
+   * @param first The first character in the range (inclusive).
+   * @param last The last character in the range (inclusive).
+   * @return {@code true} if a redaction could start with one of the characters.
+   */
+  public boolean couldStartWithAnyOf(char first, char last) {
+    return containsAnyOf(phraseStartCharacters, first, last)
+        || containsAnyOf(properNounStartCharacters, first, last);
+  }
+
+  // Checks if any of the characters in the range are in the set
+  private static boolean containsAnyOf(BitSet characters, char first, char last) {
+    int character = characters.nextSetBit(first);
+    return character >= 0 && character <= last;
+  }
+
+  /**
+   * Determines whether a redaction can only start at the start of a word, i.e. after a word
+   * separator.
+   * @return {@code true} if redactions only start at the start of a word.
+   */
+  public boolean isStartOfWordRequired() {
+    return fullWordMatching || phraseStartCharacters.isEmpty();
+  }
+
+  /**
+   * Checks if every character in the range is part of a word, i.e. isn't a word separator.
+   * @param first The first character in the range (inclusive).
+   * @param last The last character in the range (inclusive).
+   * @return {@code true} if none of the characters in the range are word separators.
+   */
+  public boolean areWordCharacters(char first, char last) {
+    for (char character = first; character <= last; character++) {
+      if (plan.isWordSeparator(character)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Checks if the index is at the start of the text, or the character before it is a separator
+  private boolean isAtStartOfWord(char[] text, int index) {
+    return index == 0 || plan.isWordSeparator(text[index - 1]);
+  }
+}
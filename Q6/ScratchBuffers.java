@@ -0,0 +1,103 @@
+import java.util.Arrays;
+
+/**
+ * <p>Working space that a redactor can reuse from one text to the next, rather than allocating it
+ * afresh for each text. This makes a noticeable difference when redacting lots of short texts.</p>
+ * <p>The buffers grow to fit the longest text that they've been used for, and never shrink. They
+ * aren't thread safe, so each thread should have its own.</p>
+ */
+public class ScratchBuffers {
+
+  private char[] characters = new char[0];
+  private char[] decodedCharacters = new char[0];
+  private byte[] bytes = new byte[0];
+  private int[] matchLengths = new int[0];
+  private int[] matchEndIndices = new int[0];
+  private int[] symbolStartIndices = new int[0];
+
+  /**
+   * Gets a buffer that can hold the given number of characters. The contents of the buffer are
+   * unspecified.
+   * @param length The number of characters.
+   * @return The buffer, which may be longer than required.
+   */
+  char[] getCharacters(int length) {
+    if (characters.length < length) {
+      characters = new char[grow(characters.length, length)];
+    }
+    return characters;
+  }
+
+  /**
+   * Gets a buffer that can hold the given number of characters, for text that has to be decoded
+   * before it's redacted. This is separate from {@link #getCharacters(int)}, as the original text
+   * is still needed while the working copy is redacted. The contents of the buffer are unspecified.
+   * @param length The number of characters.
+   * @return The buffer, which may be longer than required.
+   */
+  char[] getDecodedCharacters(int length) {
+    if (decodedCharacters.length < length) {
+      decodedCharacters = new char[grow(decodedCharacters.length, length)];
+    }
+    return decodedCharacters;
+  }
+
+  /**
+   * Gets a buffer that can hold the given number of bytes, for encoded text that isn't already in
+   * an array. The contents of the buffer are unspecified.
+   * @param length The number of bytes.
+   * @return The buffer, which may be longer than required.
+   */
+  byte[] getBytes(int length) {
+    if (bytes.length < length) {
+      bytes = new byte[grow(bytes.length, length)];
+    }
+    return bytes;
+  }
+
+  /**
+   * Gets a buffer that can hold the length of the longest phrase at each of the given number of
+   * indices. The first {@code length} elements are zero.
+   * @param length The number of indices.
+   * @return The buffer, which may be longer than required.
+   */
+  int[] getMatchLengths(int length) {
+    if (matchLengths.length < length) {
+      matchLengths = new int[grow(matchLengths.length, length)];
+    } else {
+      Arrays.fill(matchLengths, 0, length, 0);
+    }
+    return matchLengths;
+  }
+
+  /**
+   * Gets a buffer that can hold the end index of the longest phrase at each of the given number of
+   * indices. The contents of the buffer are unspecified.
+   * @param length The number of indices.
+   * @return The buffer, which may be longer than required.
+   */
+  int[] getMatchEndIndices(int length) {
+    if (matchEndIndices.length < length) {
+      matchEndIndices = new int[grow(matchEndIndices.length, length)];
+    }
+    return matchEndIndices;
+  }
+
+  /**
+   * Gets a buffer that can hold the start indices of the given number of the most recent symbols
+   * read by a phrase matcher. The contents of the buffer are unspecified.
+   * @param length The number of symbols.
+   * @return The buffer, which may be longer than required.
+   */
+  int[] getSymbolStartIndices(int length) {
+    if (symbolStartIndices.length < length) {
+      symbolStartIndices = new int[grow(symbolStartIndices.length, length)];
+    }
+    return symbolStartIndices;
+  }
+
+  // Grows the buffer geometrically so that a run of slightly longer texts doesn't resize each time
+  private static int grow(int currentLength, int requiredLength) {
+    return Math.max(requiredLength, (int) Math.min(Integer.MAX_VALUE - 8, currentLength * 2L));
+  }
+}
@@ -0,0 +1,61 @@
+/**
+ * <p>Tracks whether the next character in some text is at the start of a sentence, for {@link
+ * ProperNounDetection#CAPITALISED_EXCLUDING_START_OF_SENTENCES}. A character is at the start of a
+ * sentence if it's at the start of the text, or it's preceded by one or more word separators and,
+ * before those, a sentence terminator or the start of the text.</p>
+ * <p>The tracker is moved forwards through the text one character at a time, so checking whether a
+ * character is at the start of a sentence doesn't require searching backwards through the text.
+ * Passing the same tracker to consecutive calls to {@link SimpleTextRedactor#redact(CharSequence,
+ * Appendable, SentenceTracker)} carries its state from one item of text to the next. This means
+ * that text which has been split part way through a sentence is redacted in the same way as if it
+ * hadn't been split.</p>
+ * <p>A tracker should only be used for one stream of text, and isn't thread safe.</p>
+ */
+public class SentenceTracker {
+
+  // The number of characters that the tracker has moved past, and the last of those characters
+  private long position = 0L;
+  private char previousCharacter = '\0';
+
+  // Whether searching backwards from the character before the previous one would find the start of
+  // a sentence. The first character of the text is never examined by the search, so this is always
+  // true until the tracker has moved past at least two characters
+  private boolean sentenceStartBeforePreviousCharacter = true;
+
+  /**
+   * Moves the tracker past the next character in the text.
+   * @param character The character. This should be the character after any redactions have been
+   * applied to it.
+   * @param plan The plan for the configuration being used to redact the text.
+   */
+  void advance(char character, RedactionPlan plan) {
+    if (position >= 2) {
+      sentenceStartBeforePreviousCharacter = isSentenceTerminator(previousCharacter)
+          || (plan.isWordSeparator(previousCharacter) && sentenceStartBeforePreviousCharacter);
+    }
+    previousCharacter = character;
+    position++;
+  }
+
+  /**
+   * Checks if the next character in the text is at the start of a sentence.
+   * @param plan The plan for the configuration being used to redact the text.
+   * @return {@code true} if the next character is at the start of the text, or is preceded by at
+   * least one word separator and, before those, a sentence terminator or the start of the text.
+   */
+  boolean isAtStartOfSentence(RedactionPlan plan) {
+    // Ensure there's at least one word separator before the character. This saves us from catching
+    // things like hello.there
+    return position == 0L
+        || (plan.isWordSeparator(previousCharacter) && sentenceStartBeforePreviousCharacter);
+  }
+
+  /**
+   * Checks if a character marks the end of a sentence.
+   * @param character The character to assess.
+   * @return {@code true} if the character marks the end of a sentence.
+   */
+  private static boolean isSentenceTerminator(char character) {
+    return character == '.' || character == '!' || character == '?';
+  }
+}
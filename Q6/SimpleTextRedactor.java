@@ -1,13 +1,30 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
 import java.util.Objects;
-import java.util.Optional;
 
 /**
- * Simple implementation of a {@link Redactor}, responsible for stripping undesirable contents from
- * an item of text. The redactor uses a {@link RedactionConfiguration} to specify its functionality.
+ * <p>Simple implementation of a {@link Redactor}, responsible for stripping undesirable contents
+ * from an item of text. The redactor uses a {@link RedactionConfiguration} to specify its
+ * functionality.</p>
+ * <p>Each thread that uses the redactor keeps its own {@link ScratchBuffers} for the working copy
+ * of the text and the phrases found in it, so redacting an item of text doesn't allocate working
+ * space in proportion to its length.</p>
  */
 public class SimpleTextRedactor implements Redactor {
 
+  // The minimum number of characters that a session collects before redacting them
+  private static final int MINIMUM_SESSION_CHUNK_SIZE = 8192;
+
   private final RedactionConfiguration configuration;
+  private final RedactionPlan plan;
+  private final PhraseMatcher phraseMatcher;
+  private final CandidateScanner candidateScanner;
+  private final int longestPhraseLength;
+  private final RedactionListener listener;
+  private final ProperNounIndex properNounIndex;
+  private final ThreadLocal<ScratchBuffers> threadScratchBuffers;
 
   /**
    * Creates a new text redactor, responsible for stripping undesirable contents from an item of
@@ -17,39 +34,397 @@ public class SimpleTextRedactor implements Redactor {
    * @throws NullPointerException Thrown if {@code redactionConfiguration == null}.
    */
   public SimpleTextRedactor(RedactionConfiguration configuration) throws NullPointerException {
-    this.configuration = Objects.requireNonNull(configuration, "Configuration is null");
+    this(configuration, (RedactionListener) null);
+  }
+
+  /**
+   * Creates a new text redactor, responsible for stripping undesirable contents from an item of
+   * text. The plan for the configuration is retrieved from {@link RedactionPlanCache#getDefault()}.
+   * @param configuration The configuration that specifies what and how redactions should
+   * be found and replaced.
+   * @param listener The listener that is notified of each redaction, or {@code null} if no
+   * listener is required.
+   * @throws NullPointerException Thrown if {@code redactionConfiguration == null}.
+   */
+  public SimpleTextRedactor(RedactionConfiguration configuration, RedactionListener listener)
+      throws NullPointerException {
+    this(RedactionPlanCache.getDefault().getPlan(configuration), listener);
+  }
+
+  /**
+   * Creates a new text redactor, responsible for stripping undesirable contents from an item of
+   * text.
+   * @param plan The plan for the configuration that specifies what and how redactions should be
+   * found and replaced.
+   * @param listener The listener that is notified of each redaction, or {@code null} if no
+   * listener is required.
+   * @throws NullPointerException Thrown if {@code plan == null}.
+   */
+  public SimpleTextRedactor(RedactionPlan plan, RedactionListener listener)
+      throws NullPointerException {
+    this(plan, Objects.requireNonNull(plan, "Plan is null").getLinearPhraseMatcher(), listener);
+  }
+
+  /**
+   * Creates a new text redactor, responsible for stripping undesirable contents from an item of
+   * text.
+   * @param plan The plan for the configuration that specifies what and how redactions should be
+   * found and replaced.
+   * @param phraseMatcher The matcher used to find the redacted phrases in the text. This should
+   * have been created from {@code plan}.
+   * @param listener The listener that is notified of each redaction, or {@code null} if no
+   * listener is required.
+   * @throws NullPointerException Thrown if {@code plan == null || phraseMatcher == null}.
+   */
+  protected SimpleTextRedactor(
+      RedactionPlan plan,
+      PhraseMatcher phraseMatcher,
+      RedactionListener listener
+  ) throws NullPointerException {
+    this(
+        plan,
+        phraseMatcher,
+        Objects.requireNonNull(plan, "Plan is null").getCandidateScanner(),
+        plan.getLongestPhraseLength(),
+        listener
+    );
+  }
+
+  /**
+   * Creates a new text redactor whose phrases aren't those in the plan's configuration, such as
+   * one backed by a {@link RedactionDictionary}.
+   * @param plan The plan for the configuration that specifies how redactions should be found and
+   * replaced.
+   * @param phraseMatcher The matcher used to find the redacted phrases in the text.
+   * @param candidateScanner The scanner that finds the indices at which a redaction could start.
+   * This must account for the phrases in the matcher.
+   * @param longestPhraseLength The length of the longest phrase in the matcher.
+   * @param listener The listener that is notified of each redaction, or {@code null} if no
+   * listener is required.
+   * @throws NullPointerException Thrown if {@code plan == null || phraseMatcher == null ||
+   * candidateScanner == null}.
+   */
+  protected SimpleTextRedactor(
+      RedactionPlan plan,
+      PhraseMatcher phraseMatcher,
+      CandidateScanner candidateScanner,
+      int longestPhraseLength,
+      RedactionListener listener
+  ) throws NullPointerException {
+    this(
+        plan,
+        phraseMatcher,
+        candidateScanner,
+        longestPhraseLength,
+        listener,
+        ThreadLocal.withInitial(ScratchBuffers::new)
+    );
+  }
+
+  /**
+   * Creates a new text redactor whose phrases aren't those in the plan's configuration, sharing its
+   * scratch buffers with other redactors. A {@link RedactionDictionary} creates a redactor for every
+   * update, and sharing the buffers stops each thread from having to allocate new ones every time.
+   * @param plan The plan for the configuration that specifies how redactions should be found and
+   * replaced.
+   * @param phraseMatcher The matcher used to find the redacted phrases in the text.
+   * @param candidateScanner The scanner that finds the indices at which a redaction could start.
+   * This must account for the phrases in the matcher.
+   * @param longestPhraseLength The length of the longest phrase in the matcher.
+   * @param listener The listener that is notified of each redaction, or {@code null} if no
+   * listener is required.
+   * @param threadScratchBuffers The scratch buffers for each thread.
+   * @throws NullPointerException Thrown if {@code plan == null || phraseMatcher == null ||
+   * candidateScanner == null || threadScratchBuffers == null}.
+   */
+  SimpleTextRedactor(
+      RedactionPlan plan,
+      PhraseMatcher phraseMatcher,
+      CandidateScanner candidateScanner,
+      int longestPhraseLength,
+      RedactionListener listener,
+      ThreadLocal<ScratchBuffers> threadScratchBuffers
+  ) throws NullPointerException {
+    this.plan = Objects.requireNonNull(plan, "Plan is null");
+    this.configuration = plan.getConfiguration();
+    this.phraseMatcher = Objects.requireNonNull(phraseMatcher, "Phrase matcher is null");
+    this.candidateScanner = Objects.requireNonNull(candidateScanner, "Candidate scanner is null");
+    this.longestPhraseLength = longestPhraseLength;
+    this.listener = listener;
+    this.properNounIndex = null;
+    this.threadScratchBuffers =
+        Objects.requireNonNull(threadScratchBuffers, "Thread scratch buffers are null");
+  }
+
+  // Copies the redactor, replacing its proper noun index
+  private SimpleTextRedactor(SimpleTextRedactor redactor, ProperNounIndex properNounIndex) {
+    this.plan = redactor.plan;
+    this.configuration = redactor.configuration;
+    this.phraseMatcher = redactor.phraseMatcher;
+    this.candidateScanner = redactor.candidateScanner;
+    this.longestPhraseLength = redactor.longestPhraseLength;
+    this.listener = redactor.listener;
+    this.properNounIndex = properNounIndex;
+    this.threadScratchBuffers = redactor.threadScratchBuffers;
+  }
+
+  /**
+   * <p>Creates a redactor that is the same as this one, except that proper nouns are detected with
+   * the index. This is the second pass of a two pass redaction, where the index has been built
+   * from the whole document first.</p>
+   * <p>A capitalised word is then only redacted if the index says that it's a proper noun, but it's
+   * redacted wherever it appears, including at the start of a sentence. The index is ignored if
+   * proper noun detection is {@link ProperNounDetection#DISABLED disabled}.</p>
+   * @param properNounIndex The index of the words in the whole document.
+   * @return The new redactor.
+   * @throws NullPointerException Thrown if {@code properNounIndex == null}.
+   */
+  public SimpleTextRedactor withProperNounIndex(ProperNounIndex properNounIndex)
+      throws NullPointerException {
+    return new SimpleTextRedactor(
+        this, Objects.requireNonNull(properNounIndex, "Proper noun index is null")
+    );
+  }
+
+  /**
+   * Gets the plan that specifies what and how redactions should be found and replaced.
+   * @return The plan.
+   */
+  public RedactionPlan getPlan() {
+    return plan;
   }
 
   @Override
   public String redact(String text) throws NullPointerException {
     Objects.requireNonNull(text, "Text is null");
+    return new String(redactToBuffer(text, null).characters, 0, text.length());
+  }
+
+  /**
+   * Redacts the text, using the scratch buffers for the working copy of the text and, where the
+   * phrase matcher supports it, the phrases that are found in it. This produces the same result as
+   * {@link #redact(String)}, but saves allocating new working space for every item of text, which
+   * is worthwhile when redacting lots of short items.
+   * @param text The text to redact.
+   * @param scratchBuffers The scratch buffers. These must not be used by any other thread while
+   * this method is running.
+   * @return The redacted text.
+   * @throws NullPointerException Thrown if {@code text == null || scratchBuffers == null}.
+   */
+  public String redact(CharSequence text, ScratchBuffers scratchBuffers)
+      throws NullPointerException {
+    Objects.requireNonNull(text, "Text is null");
+    Objects.requireNonNull(scratchBuffers, "Scratch buffers are null");
+    return new String(redactToScratchBuffer(text, scratchBuffers), 0, text.length());
+  }
+
+  /**
+   * Gets the current thread's scratch buffers, so that classes that redact through this redactor,
+   * such as {@link BatchRedactor}, can reuse them rather than keeping their own.
+   * @return The scratch buffers. These must only be used by the current thread.
+   */
+  ScratchBuffers getScratchBuffers() {
+    return threadScratchBuffers.get();
+  }
+
+  /**
+   * Redacts the text into the scratch buffers' {@linkplain ScratchBuffers#getCharacters(int)
+   * characters}, without copying the result any further.
+   * @param text The text to redact.
+   * @param scratchBuffers The scratch buffers.
+   * @return The scratch buffer holding the redacted text, which starts at index 0 and has the same
+   * length as the text. This is only valid until the scratch buffers are next used.
+   */
+  char[] redactToScratchBuffer(CharSequence text, ScratchBuffers scratchBuffers) {
+    return redactToScratchBuffer(text, scratchBuffers, null).characters;
+  }
+
+  /**
+   * Applies the redactions to a working copy of the text in the scratch buffers.
+   * @param text The text to redact.
+   * @param scratchBuffers The scratch buffers.
+   * @param spans The spans that each redaction should be added to, or {@code null} if they aren't
+   * needed.
+   * @return The working copy, with all redactions applied.
+   */
+  private WorkingCopy redactToScratchBuffer(
+      CharSequence text, ScratchBuffers scratchBuffers, RedactionSpans spans
+  ) {
+    WorkingCopy result = new WorkingCopy(
+        text,
+        scratchBuffers.getCharacters(text.length()),
+        phraseMatcher.findMatches(text, scratchBuffers),
+        isSentenceTrackingRequired() ? new SentenceTracker() : null
+    );
+    result.spans = spans;
+    redactUpToIndex(result, result.length);
+    return result;
+  }
+
+  /**
+   * <p>Finds where the redactions in the text are and why they were made, without producing the
+   * redacted text. The redactions are exactly those that {@link #redact(String)} would make, and
+   * are added to the spans in the order that they appear in the text.</p>
+   * <p>A redacted phrase is identified by its index in the configuration's {@linkplain
+   * RedactionConfiguration#getRedactedPhrases() phrases}. Phrases that don't come from the
+   * configuration, such as those in a {@link CompactPhraseDictionary}, are reported as {@link
+   * RedactionSpans#UNIDENTIFIED_PHRASE}. Proper nouns are reported with the rule that detected
+   * them.</p>
+   * @param text The text to find the redactions in.
+   * @param spans The spans to add the redactions to.
+   * @throws NullPointerException Thrown if {@code text == null || spans == null}.
+   */
+  public void findRedactions(CharSequence text, RedactionSpans spans)
+      throws NullPointerException {
+    findRedactions(text, spans, threadScratchBuffers.get());
+  }
+
+  /**
+   * Finds where the redactions in the text are and why they were made, as for {@link
+   * #findRedactions(CharSequence, RedactionSpans)}, using the scratch buffers for the working
+   * space. Reusing the same spans and scratch buffers for each text means that a large number of
+   * texts can be indexed without allocating anything for most of them.
+   * @param text The text to find the redactions in.
+   * @param spans The spans to add the redactions to.
+   * @param scratchBuffers The scratch buffers. These must not be used by any other thread while
+   * this method is running.
+   * @throws NullPointerException Thrown if {@code text == null || spans == null ||
+   * scratchBuffers == null}.
+   */
+  public void findRedactions(
+      CharSequence text, RedactionSpans spans, ScratchBuffers scratchBuffers
+  ) throws NullPointerException {
+    Objects.requireNonNull(text, "Text is null");
+    Objects.requireNonNull(spans, "Spans are null");
+    Objects.requireNonNull(scratchBuffers, "Scratch buffers are null");
+
+    int firstSpanIndex = spans.getNumberOfSpans();
+    redactToScratchBuffer(text, scratchBuffers, spans);
+
+    // The phrases are only identified once they've all been found, so that redacting the text
+    // doesn't slow down when spans are requested. The phrases are matched against the original
+    // text, as they were when they were found
+    for (int i = firstSpanIndex; i < spans.getNumberOfSpans(); i++) {
+      if (spans.getReason(i) == RedactionSpans.UNIDENTIFIED_PHRASE) {
+        int offset = spans.getOffset(i);
+        spans.setReason(i, plan.getPhraseId(text, offset, offset + spans.getLength(i)));
+      }
+    }
+  }
+
+  @Override
+  public void redact(CharSequence text, Appendable output)
+      throws NullPointerException, IOException {
+    redact(text, output, null);
+  }
+
+  /**
+   * Redacts the text, writing the result to the output. Unlike {@link #redact(CharSequence,
+   * Appendable)}, the start of the text isn't necessarily treated as the start of a sentence.
+   * Instead, whether or not the text starts part way through a sentence is determined by the
+   * tracker, which is then moved to the end of the text. Passing the same tracker to consecutive
+   * calls means that text can be split at any point without affecting how proper nouns are
+   * detected at the start of sentences.
+   * @param text The text to redact.
+   * @param output The output that the redacted text should be written to.
+   * @param sentenceTracker The tracker for the text that came before this text, or {@code null} if
+   * this text is at the start of a sentence.
+   * @throws NullPointerException Thrown if {@code text == null || output == null}.
+   * @throws IOException Thrown if there is a problem writing to the output.
+   */
+  public void redact(CharSequence text, Appendable output, SentenceTracker sentenceTracker)
+      throws NullPointerException, IOException {
+    Objects.requireNonNull(text, "Text is null");
+    Objects.requireNonNull(output, "Output is null");
+
+    WorkingCopy result = redactToBuffer(text, sentenceTracker);
+
+    // Writers would otherwise copy the characters into a new string before writing them
+    if (output instanceof Writer) {
+      ((Writer) output).write(result.characters, 0, result.length);
+    } else {
+      output.append(CharBuffer.wrap(result.characters, 0, result.length));
+    }
+  }
+
+  /**
+   * Applies the redactions to a working copy of the text in this thread's scratch buffers.
+   * @param text The text to redact.
+   * @param sentenceTracker The tracker for the text that came before this text, which will be
+   * moved to the end of this text, or {@code null} if this text is at the start of a sentence.
+   * @return The working copy, with all redactions applied. This is only valid until this thread
+   * next uses the redactor.
+   */
+  private WorkingCopy redactToBuffer(CharSequence text, SentenceTracker sentenceTracker) {
+    ScratchBuffers scratchBuffers = threadScratchBuffers.get();
 
     // Create an instance to hold the text that will be continually updated and the index that its
     // been updated to
-    SequentiallyModifiedString result = new SequentiallyModifiedString(text);
+    WorkingCopy result = new WorkingCopy(
+        text,
+        scratchBuffers.getCharacters(text.length()),
+        phraseMatcher.findMatches(text, scratchBuffers),
+        sentenceTracker == null && isSentenceTrackingRequired() ? new SentenceTracker()
+            : sentenceTracker
+    );
+
+    redactUpToIndex(result, result.length);
+
+    // Leave the caller's tracker at the end of the text, ready for the next text
+    if (sentenceTracker != null && isSentenceTrackingRequired()) {
+      advanceSentenceTracker(result, result.length);
+    }
 
+    return result;
+  }
+
+  /**
+   * Applies the redactions to the working copy, from its current index until it reaches the given
+   * index. A redaction that starts before the given index may continue past it, in which case the
+   * working copy's index is left at the end of that redaction.
+   * @param text The working copy of the text to redact.
+   * @param endIndex The index that the redaction should stop at.
+   */
+  private void redactUpToIndex(WorkingCopy text, int endIndex) {
     // Sequentially loop through the text until all of the redactions have been applied. This
     // algorithm only loops through the text once, which is convenient for long items of text,
     // particularly where the number of redacted phrases is low
-    while (result.index < text.length()) {
+    while (text.index < endIndex) {
+      // Skip straight past the characters that can't start a redaction
+      text.index = candidateScanner.findNextCandidate(text.characters, text.index, endIndex);
+      if (text.index >= endIndex) {
+        break;
+      }
+
       // The text is updated within the invoked method. I decided not to update the index in the
       // same why as it made it more difficult to see how the index was being modified within the
       // context of this while loop. Now it should be clearer to see when the loop will terminate
-      result.index += tryRedactionFromIndex(result);
+      text.index += tryRedactionFromIndex(text);
     }
+  }
 
-    // Return the result
-    return result.string;
+  /**
+   * Starts a session that redacts a stream of text, writing the results to the output as it goes.
+   * Only enough text is held back to be sure that it won't be affected by the text that follows
+   * it, i.e. enough to match the longest redacted phrase and, if proper nouns are detected, to
+   * reach the end of the current word.
+   * @param output The destination for the result of the redaction.
+   * @return The session.
+   * @throws NullPointerException Thrown if {@code output == null}.
+   */
+  @Override
+  public RedactorSession startSession(Appendable output) throws NullPointerException {
+    return new StreamingSession(Objects.requireNonNull(output, "Output is null"));
   }
 
   /**
    * Attempts to redact text from the index. The redaction may be in the form of a redacted phrase,
    * or an automatically detected proper noun.
    * @param text The text to redact. Its index will be updated as part of this method, and its
-   * string will be updated too if a redaction is applied.
+   * characters will be updated too if a redaction is applied.
    * @return The number of characters redacted.
    */
-  private int tryRedactionFromIndex(SequentiallyModifiedString text) {
+  private int tryRedactionFromIndex(WorkingCopy text) {
     // Try to do phrase matching first as noun detection may otherwise obscure some matches
     int increment = replacePhrasesFromIndex(text);
 
@@ -74,95 +449,34 @@ public class SimpleTextRedactor implements Redactor {
 
   /**
    * Redacts phrases at the given index, if detected.
-   * @param text The text to replace. This method will update the text and set the index to the end
-   * of the match if a match is found.
+   * @param text The text to replace. This method will update the text if a match is found.
    * @return The number of characters redacted.
    */
-  private int replacePhrasesFromIndex(SequentiallyModifiedString text) {
-    // Loop through each phrase that should be redacted
-    for (String redactedPhrase : configuration.getRedactedPhrases()) {
-      // Check if the redacted phrase can be found at this index
-      Optional<Integer> matchLength = getLengthOfPhraseMatchAtIndex(text, redactedPhrase);
-      if (matchLength.isPresent()) {
-        return matchLength.get();
-      }
-    }
-
-    // No phrase match was detected
-    return 0;
-  }
-
-  /**
-   * Determines the length of the match between the text and the index provided in {@code text} and
-   * the redacted phrase, or an empty optional if no match was determined. The length of that match
-   * may be different to {@code redactedPhrase.length()} if the redacted phrase contains a space,
-   * and the matching phrase also contains whitespace but in a different quantity. For example,
-   * matching the redacted phrase "United Kingdom" in the text "United   Kingdom" would return a
-   * match length of 16.
-   * @param text The text to compare, containing the index at which the comparison should occur.
-   * @param redactedPhrase The redacted phrase.
-   * @return THe length of the matched phrase.
-   */
-  private Optional<Integer> getLengthOfPhraseMatchAtIndex(
-      SequentiallyModifiedString text, String redactedPhrase
-  ) {
+  private int replacePhrasesFromIndex(WorkingCopy text) {
     // If word matching is used, make sure that this is the start of a word
-    if (configuration.isFullWordMatching() && !isAtStartOfWord(text.string, text.index)) {
+    if (configuration.isFullWordMatching() && !isAtStartOfWord(text.characters, text.index)) {
       // Not the start of a word
-      return Optional.empty();
+      return 0;
     }
 
-    int textIndex = text.index;
-    int phraseIndex = 0;
-
-    // Loop through the text from the start index and iteratively compare the characters in the text
-    // and the redacted phrase
-    while (textIndex < text.string.length() && phraseIndex < redactedPhrase.length()) {
-
-      char characterInText = text.string.charAt(textIndex);
-      char characterInPhrase = redactedPhrase.charAt(phraseIndex);
-
-      // Whitespace in phrases will always be replaced with single spaces for simplicity.
-      // Check if the character in the phrase is whitespace...
-      if (characterInPhrase == ' ') {
-
-        // If the character in the text is not also whitespace, then there's no match
-        if (!Character.isWhitespace(characterInText)) {
-          return Optional.empty();
-        }
-
-        // Continue through the text, skipping all other whitespace
-        for (; textIndex < text.string.length(); textIndex++) {
-          if (!Character.isWhitespace(text.string.charAt(textIndex))) {
-            break; // Found the first non-whitespace character so stop skipping elements
-          }
-        }
-      } else {
-        // Compare the characters
-        if (!charactersAreEqual(text.string.charAt(textIndex), redactedPhrase.charAt(phraseIndex))) {
-          // Characters aren't equal to this isn't a match
-          return Optional.empty();
-        }
-        // The characters matched, so move onto the next ones
-        textIndex++;
-      }
-
-      phraseIndex++;
+    // Check if any of the redacted phrases can be found at this index
+    int matchEndIndex = text.phraseMatches.getMatchEndIndex(text.index);
+    if (matchEndIndex < 0) {
+      // No phrase match was detected
+      return 0;
     }
 
-    // Check if the phrase was encountered before the end of the text string
-    if (phraseIndex != redactedPhrase.length()) {
-      return Optional.empty();
+    redactCharactersBetweenIndices(text.characters, text.index, matchEndIndex);
+    if (listener != null) {
+      listener.phraseRedacted(matchEndIndex - text.index);
     }
-
-    // Ensure that word matching is not required, or that it's at the end of a word
-    if (!configuration.isFullWordMatching()
-        || isWordSeparatorOrBeyondEndOfText(text.string, textIndex)
-    ) {
-      text.string = redactCharactersBetweenIndices(text.string, text.index, textIndex);
-      return Optional.of(textIndex - text.index);
+    if (text.spans != null) {
+      // The phrase is identified once all of the redactions have been found
+      text.spans.add(
+          text.index, matchEndIndex - text.index, RedactionSpans.UNIDENTIFIED_PHRASE
+      );
     }
-    return Optional.empty();
+    return matchEndIndex - text.index;
   }
 
   /**
@@ -172,105 +486,46 @@ public class SimpleTextRedactor implements Redactor {
    * @return {@code true} if the index is at the start of the string, or the character before it
    * is a word separator as defined by {@link RedactionConfiguration#isWordSeparator(char)}.
    */
-  private boolean isAtStartOfWord(String text, int index) {
-    return index == 0 || configuration.isWordSeparator(text.charAt(index - 1));
+  private boolean isAtStartOfWord(char[] text, int index) {
+    return index == 0 || plan.isWordSeparator(text[index - 1]);
   }
 
   /**
-   * Checks if the index provided is beyond the bounds of the text or if the character at the index
-   * is a word separator as defined by the {@link RedactionConfiguration}.
-   * @param text The text.
-   * @param index The index of the character.
-   * @return {@code true} if {@code index} is beyond the bounds of the text or if the character at
-   * the index is a word separator.
-   */
-  private boolean isWordSeparatorOrBeyondEndOfText(String text, int index) {
-    return index >= text.length()
-        || configuration.isWordSeparator(text.charAt(index));
-  }
-
-  /**
-   * Checks if two characters are equal. If {@link RedactionConfiguration#isMatchRedactedWordCase()}
-   * is disabled, the characters will be matched case insensitively.
-   * @param char1 The first character.
-   * @param char2 The second character.
-   * @return {@code true} if the characters are equal according to the {@link
-   * RedactionConfiguration}.
-   */
-  private boolean charactersAreEqual(char char1, char char2) {
-    return configuration.isMatchRedactedWordCase() ?
-        char1 == char2 : Character.toLowerCase(char1) == Character.toLowerCase(char2);
-  }
-
-  /**
-   * Redacts the specified number of characters from the given string at the given index.
+   * Redacts the specified number of characters from the given text at the given index. The
+   * characters are replaced in place with {@link RedactionConfiguration#getReplacementCharacter()}.
    * @param text The text that should be redacted.
    * @param startIndex The index that the redaction should start at.
    * @param numberOfCharactersToRedact The number of characters to redact.
-   * @return The text with the redaction applied.
    * @throws IndexOutOfBoundsException Thrown if {@code startIndex < 0 || startIndex >=
-   * text.length()}, or {@code startIndex + numberOfCharactersToRedact < 0 || startIndex +
-   * numberOfCharactersToRedact >= text.length()}.
+   * text.length}, or {@code startIndex + numberOfCharactersToRedact < 0 || startIndex +
+   * numberOfCharactersToRedact > text.length}.
    */
-  private String redactCharactersFromIndex(
-      String text, int startIndex, int numberOfCharactersToRedact
+  private void redactCharactersFromIndex(
+      char[] text, int startIndex, int numberOfCharactersToRedact
   ) throws IndexOutOfBoundsException {
-    String redactionString = buildRedactionString(numberOfCharactersToRedact);
-    return text.substring(0, startIndex)
-        + redactionString
-        + text.substring(startIndex + numberOfCharactersToRedact);
-  }
-
-  /**
-   * Builds the redaction replacement string. The character that is used is specified by {@link
-   * RedactionConfiguration#getReplacementCharacter()}.
-   * @param length The length of the redaction replacement string.
-   * @return The redaction replacement string.
-   */
-  private String buildRedactionString(int length) {
-    return String.valueOf(configuration.getReplacementCharacter()).repeat(length);
+    Arrays.fill(
+        text, startIndex, startIndex + numberOfCharactersToRedact,
+        configuration.getReplacementCharacter()
+    );
   }
 
   /**
-   * Redacts the characters between the given indices of the text. All non-word separators between
-   * these indices are replaced with {@link
+   * Redacts the characters between the given indices of the text, in place. All non-whitespace
+   * characters between these indices are replaced with {@link
    * RedactionConfiguration#getReplacementCharacter()}.
-   * @param text The original text.
-   * @param startIndex The start index (inclusive) of the substring to redact.
-   * @param endIndex The end index (exclusive) of the substring to redact.
-   * @return The original text with the redaction applied.
-   */
-  private String redactCharactersBetweenIndices(String text, int startIndex, int endIndex) {
-    // Build the redaction to be inserted
-    String redactionString = buildRedactionString(text.substring(startIndex, endIndex));
-
-    // Insert the redaction in place of the offending part of the original text
-    return text.substring(0, startIndex) + redactionString + text.substring(endIndex);
-  }
-
-  /**
-   * Builds a redaction for the given substring. All non-word separators will be replace with {@link
-   * RedactionConfiguration#getReplacementCharacter()}.
-   * @param substringToBeMasked The substring to be masked.
-   * @return The redacted form of the substring.
+   * @param text The text.
+   * @param startIndex The start index (inclusive) of the section to redact.
+   * @param endIndex The end index (exclusive) of the section to redact.
    */
-  private String buildRedactionString(String substringToBeMasked) {
-    StringBuilder redactionBuilder = new StringBuilder();
-
-    // Loop through each character in the substring
-    for (int i = 0; i < substringToBeMasked.length(); i++) {
-      char characterToBeMasked = substringToBeMasked.charAt(i);
-
+  private void redactCharactersBetweenIndices(char[] text, int startIndex, int endIndex) {
+    // Loop through each character in the section
+    for (int i = startIndex; i < endIndex; i++) {
       // If the character is whitespace, leave it as is. Otherwise, replace it with the masking
       // character
-      redactionBuilder.append(
-          Character.isWhitespace(characterToBeMasked) ?
-              characterToBeMasked : configuration.getReplacementCharacter()
-      );
+      if (!Character.isWhitespace(text[i])) {
+        text[i] = configuration.getReplacementCharacter();
+      }
     }
-
-    // Return the result
-    return redactionBuilder.toString();
   }
 
   /**
@@ -279,116 +534,104 @@ public class SimpleTextRedactor implements Redactor {
    * @param text The text to apply the redactions to.
    * @return The number of characters redacted.
    */
-  private int redactProperNounsFromIndex(SequentiallyModifiedString text) {
+  private int redactProperNounsFromIndex(WorkingCopy text) {
     // If proper noun detection is disabled, don't do anything
     if (ProperNounDetection.DISABLED.equals(configuration.getProperNounDetection())) {
       return 0;
     }
 
-    // If sentence case should be accounted for, check if the character at the index is at the start
-    // of a sentence. If so, don't continue redacting
-    if (ProperNounDetection.CAPITALISED_EXCLUDING_START_OF_SENTENCES
-            .equals(configuration.getProperNounDetection())
-          && isFirstAlphabeticCharacterInSentence(text.string, text.index)
+    // If the word does not start with a capital letter, or the character is not at the start of a
+    // word, then this isn't a proper noun so stop redacting. This is checked first as it rules out
+    // most characters more cheaply than the sentence check below
+    if (!Character.isUpperCase(text.characters[text.index])
+        || !isAtStartOfWord(text.characters, text.index)
     ) {
       return 0;
     }
 
-    // If the word does not start with a capital letter, or the character is not at the start of a
-    // word, then this isn't a proper noun so stop redacting.
-    if (!Character.isUpperCase(text.string.charAt(text.index))
-        || !isAtStartOfWord(text.string, text.index)
-    ) {
+    // If sentence case should be accounted for, check if the character at the index is at the start
+    // of a sentence. If so, don't continue redacting
+    if (isSentenceTrackingRequired() && isFirstAlphabeticCharacterInSentence(text)) {
       return 0;
     }
 
     // Get the number of additional characters (other than the first) in the proper noun
-    Optional<Integer> additionalCharacterInWordOptional =
-        getLengthOfCurrentWordIfAllLowercase(text.string, text.index + 1);
+    int additionalCharactersInWord =
+        getLengthOfCurrentWordIfAllLowercase(text.characters, text.index + 1, text.length);
 
     // If any uppercase characters were detected in the additional characters, it wasn't a proper
     // noun, so don't perform any further actions
-    if (additionalCharacterInWordOptional.isEmpty()) {
+    if (additionalCharactersInWord < 0) {
       return 0;
     }
 
     // Get the complete length of the proper noun
-    int lengthOfProperNoun = 1 + additionalCharacterInWordOptional.get();
+    int lengthOfProperNoun = 1 + additionalCharactersInWord;
 
     // Exclude single-letter names like "I"
     if (lengthOfProperNoun <= 1) {
       return 0;
     }
 
+    // If there's an index, it has the final say, based on how the word is used in the whole text
+    if (properNounIndex != null && !properNounIndex.isProperNoun(
+        CharBuffer.wrap(text.characters, text.index, lengthOfProperNoun)
+    )) {
+      return 0;
+    }
+
     // Perform the redaction
-    text.string = redactCharactersFromIndex(text.string, text.index, lengthOfProperNoun);
+    redactCharactersFromIndex(text.characters, text.index, lengthOfProperNoun);
+    if (listener != null) {
+      listener.properNounRedacted(configuration.getProperNounDetection(), lengthOfProperNoun);
+    }
+    if (text.spans != null) {
+      text.spans.add(
+          text.index,
+          lengthOfProperNoun,
+          RedactionSpans.getProperNounReason(configuration.getProperNounDetection())
+      );
+    }
 
     return lengthOfProperNoun;
   }
 
   /**
-   * Checks if the character at the given index is at the start of a sentence.
-   * @param text The text.
-   * @param index The index of the character to check.
-   * @return {@code true} if the character at the given index is at the start of a sentence.
+   * Determines whether the start of each sentence has to be tracked, which is only the case if
+   * proper nouns are detected everywhere other than at the start of a sentence. An index decides
+   * for itself, so there's no need to track sentences if there is one.
+   * @return {@code true} if the start of each sentence has to be tracked.
    */
-  private boolean isFirstAlphabeticCharacterInSentence(String text, int index) {
-    // No need to determine if it's at the start of a sentence if the character is non-alphabetic
-    return Character.isAlphabetic(text.charAt(index))
-        && isPrecededByStartOfStringOrSentenceTerminatorThenWhitespace(text, index);
+  private boolean isSentenceTrackingRequired() {
+    return properNounIndex == null
+        && ProperNounDetection.CAPITALISED_EXCLUDING_START_OF_SENTENCES
+            .equals(configuration.getProperNounDetection());
   }
 
   /**
-   * Checks if the character at the given index is preceded by a period then a sequence of one or
-   * more whitespace characters.
+   * Checks if the character at the index of the working copy is at the start of a sentence.
    * @param text The text.
-   * @param index The index of the character.
-   * @return {@code true} if the character is preceded by a period then a sequence of one or more
-   * whitespace characters.
+   * @return {@code true} if the character at the index is at the start of a sentence.
    */
-  private boolean isPrecededByStartOfStringOrSentenceTerminatorThenWhitespace(
-      String text, int index
-  ) {
-    // If the index is 0 then it's at the start of the string
-    if (index < 1) {
-      return true;
-    }
-
-    // Ensure there's at least one word separator before the period. This saves us from catching
-    // things like hello.there
-    char previousCharacter = text.charAt(index-1);
-    if (!configuration.isWordSeparator(previousCharacter)) {
+  private boolean isFirstAlphabeticCharacterInSentence(WorkingCopy text) {
+    // No need to determine if it's at the start of a sentence if the character is non-alphabetic
+    if (!Character.isAlphabetic(text.characters[text.index])) {
       return false;
     }
-
-    // Iteratively loop back through the string until we get to the start
-    for (int i = index-2; i > 0; i--) {
-      char character = text.charAt(i);
-      // If the character is a marks the end of the previous sentence, then this must be the start
-      // of a new sentence
-      if (isSentenceTerminator(character)) {
-        return true;
-      }
-
-      // If we hit any other character that isn't classified as a word separator, then it's not the
-      // start of a sentence
-      if (!configuration.isWordSeparator(character)) {
-        return false;
-      }
-    }
-
-    // The case when the string is preceded by a load of word separators (e.g. whitespace) but
-    // there's no sentence terminator. We should still assume that this is the start of sentence
-    return true;
+    advanceSentenceTracker(text, text.index);
+    return text.sentenceTracker.isAtStartOfSentence(plan);
   }
 
   /**
-   * Checks if a character marks the end of a sentence.
-   * @param character The character to assess.
-   * @return {@code true} if the character marks the end of a sentence.
+   * Moves the sentence tracker of the working copy forwards to the given index. The characters
+   * before the index of the working copy have already been redacted, so they won't change again.
+   * @param text The text.
+   * @param index The index that the tracker should be moved to.
    */
-  private boolean isSentenceTerminator(char character) {
-    return character == '.' || character == '!' || character == '?';
+  private void advanceSentenceTracker(WorkingCopy text, int index) {
+    for (; text.sentenceTrackerIndex < index; text.sentenceTrackerIndex++) {
+      text.sentenceTracker.advance(text.characters[text.sentenceTrackerIndex], plan);
+    }
   }
 
   /**
@@ -396,47 +639,220 @@ public class SimpleTextRedactor implements Redactor {
    * encountered.
    * @param text The text.
    * @param wordStartIndex The start position for counting.
-   * @return The length of the lowercase word, or an empty optional if the word is not all in
-   * lowercase.
+   * @param textLength The length of the text, which may be shorter than the array.
+   * @return The length of the lowercase word, or {@code -1} if the word is not all in lowercase.
    */
-  private Optional<Integer> getLengthOfCurrentWordIfAllLowercase(
-      String text, int wordStartIndex
+  private int getLengthOfCurrentWordIfAllLowercase(
+      char[] text, int wordStartIndex, int textLength
   ) {
     int length = 0;
 
     // Loop through the text from the index until the end of the string
-    for (int index = wordStartIndex; index < text.length(); index++) {
-      char currentCharacter = text.charAt(index);
+    for (int index = wordStartIndex; index < textLength; index++) {
+      char currentCharacter = text[index];
       // If a word separator is detected, return the length of the string
-      if (configuration.isWordSeparator(currentCharacter)) {
-        return Optional.of(length);
+      if (plan.isWordSeparator(currentCharacter)) {
+        return length;
       }
       // If we come across a non-alphabetic character, it's not classified as a word separator or it
       // would have been caught above. Therefore we only have to make sure that, if it's alphabetic,
-      // it's lowercase. If so, it's not a lowercase word so return an empty optional.
+      // it's lowercase. If so, it's not a lowercase word so return -1.
       if (Character.isAlphabetic(currentCharacter) && Character.isUpperCase(currentCharacter)) {
-        return Optional.empty();
+        return -1;
       }
 
       // The character is a valid part of the word, so increment the word length
       length++;
     }
-    return Optional.of(length);
+    return length;
+  }
+
+  /**
+   * <p>A session that redacts the text as it's fed in, rather than waiting for all of it.</p>
+   * <p>The text that hasn't been written out yet is held in a buffer. Once enough text has been
+   * fed in, the buffer is redacted up to the last index at which the outcome can't be changed by
+   * the text that follows. The redacted text before that point is written out, and the rest of the
+   * buffer is kept for next time. The last character that was written out is kept at the start of
+   * the buffer, as whether a redaction can start at the next index depends on it.</p>
+   */
+  private class StreamingSession implements RedactorSession {
+    private final Appendable output;
+    private final StringBuilder buffer = new StringBuilder();
+    private final SentenceTracker sentenceTracker =
+        isSentenceTrackingRequired() ? new SentenceTracker() : null;
+
+    // Whether the first character in the buffer has already been written out, and the size of the
+    // buffer after it was last redacted
+    private boolean bufferStartsWithPreviousCharacter = false;
+    private int retainedLength = 0;
+    private boolean finished = false;
+
+    // Initialises the session with the destination for the redacted text
+    private StreamingSession(Appendable output) {
+      this.output = output;
+    }
+
+    @Override
+    public void feed(CharSequence text)
+        throws NullPointerException, IOException, IllegalStateException {
+      Objects.requireNonNull(text, "Text is null");
+      ensureNotFinished();
+      buffer.append(text);
+
+      // Wait until there's a reasonable amount of new text, so that the text that's held back isn't
+      // scanned over and over again
+      if (buffer.length() - retainedLength
+          >= Math.max(MINIMUM_SESSION_CHUNK_SIZE, retainedLength)
+      ) {
+        redactBuffer(false);
+      }
+    }
+
+    @Override
+    public void finish() throws IOException, IllegalStateException {
+      ensureNotFinished();
+      redactBuffer(true);
+      finished = true;
+    }
+
+    // Sessions can't be used after they've been finished
+    private void ensureNotFinished() throws IllegalStateException {
+      if (finished) {
+        throw new IllegalStateException("Session has already been finished");
+      }
+    }
+
+    /**
+     * Redacts the buffer as far as possible, and writes the redacted text to the output.
+     * @param endOfText Should be {@code true} if no more text will be fed in, in which case the
+     * whole buffer is redacted.
+     * @throws IOException Thrown if there is a problem writing to the output.
+     */
+    private void redactBuffer(boolean endOfText) throws IOException {
+      int startIndex = bufferStartsWithPreviousCharacter ? 1 : 0;
+      int endIndex = endOfText ? buffer.length() : getLastSafeIndex(startIndex);
+      if (endIndex <= startIndex) {
+        retainedLength = buffer.length();
+        return;
+      }
+
+      ScratchBuffers scratchBuffers = threadScratchBuffers.get();
+      WorkingCopy text = new WorkingCopy(
+          buffer,
+          scratchBuffers.getCharacters(buffer.length()),
+          phraseMatcher.findMatches(buffer, scratchBuffers),
+          sentenceTracker
+      );
+      text.index = startIndex;
+      text.sentenceTrackerIndex = startIndex;
+      redactUpToIndex(text, endIndex);
+      if (sentenceTracker != null) {
+        advanceSentenceTracker(text, text.index);
+      }
+
+      // Write out everything that has been redacted
+      if (output instanceof Writer) {
+        ((Writer) output).write(text.characters, startIndex, text.index - startIndex);
+      } else {
+        output.append(CharBuffer.wrap(text.characters, startIndex, text.index - startIndex));
+      }
+
+      // Keep the rest of the buffer, along with the last character that was written out. The rest
+      // hasn't been redacted yet, so is still the same as the original text
+      buffer.delete(0, text.index - 1);
+      buffer.setCharAt(0, text.characters[text.index - 1]);
+      bufferStartsWithPreviousCharacter = true;
+      retainedLength = buffer.length();
+    }
+
+    /**
+     * <p>Finds the index up to which the buffer can be redacted without knowing what text follows
+     * it.</p>
+     * <p>A redacted phrase that starts at an index can't extend beyond the longest phrase, plus the
+     * character after it that decides whether the phrase ends a word. Whitespace is tricky, as a
+     * space in a phrase matches a whole run of whitespace, so each run is counted as a single
+     * character. A run at the end of the buffer might continue into the next text, so it isn't
+     * counted at all.</p>
+     * <p>A proper noun continues until the next word separator, so nothing after the last word
+     * separator in the buffer can be redacted.</p>
+     * @param startIndex The index that the redaction would start at.
+     * @return The index up to which the buffer can be redacted.
+     */
+    private int getLastSafeIndex(int startIndex) {
+      int index = buffer.length();
+      while (index > startIndex && Character.isWhitespace(buffer.charAt(index - 1))) {
+        index--;
+      }
+
+      // Step back over the longest phrase, plus the character after it
+      int charactersRequired = longestPhraseLength + 1;
+      for (int characters = 0; characters < charactersRequired; characters++) {
+        if (index <= startIndex) {
+          return startIndex;
+        }
+        index--;
+        while (index > startIndex
+            && Character.isWhitespace(buffer.charAt(index))
+            && Character.isWhitespace(buffer.charAt(index - 1))
+        ) {
+          index--;
+        }
+      }
+
+      // Don't go beyond the end of the last complete word
+      if (!ProperNounDetection.DISABLED.equals(configuration.getProperNounDetection())) {
+        int lastWordSeparatorIndex = buffer.length() - 1;
+        while (lastWordSeparatorIndex >= startIndex
+            && !plan.isWordSeparator(buffer.charAt(lastWordSeparatorIndex))
+        ) {
+          lastWordSeparatorIndex--;
+        }
+        index = Math.min(index, Math.max(startIndex, lastWordSeparatorIndex));
+      }
+      return index;
+    }
   }
 
   /**
-   * <p>Holds a string and the index that the string has been modified up until.</p>
+   * <p>Holds a working copy of the text being redacted and the index that it has been modified up
+   * until. Redactions are applied to the working copy in place, so the text is only copied once,
+   * regardless of the number of redactions.</p>
    * <p>This is effectively just a struct, and is only used internally. As a result, I've chosen to
    * treat as such and to not complicate the calling code by forcing the use of getters and setters.
    * </p>
    */
-  private static class SequentiallyModifiedString {
-    private String string;
+  private static class WorkingCopy {
+    private final char[] characters;
+    private final int length;
     private int index = 0;
-
-    // Initialises the instance with the given string
-    private SequentiallyModifiedString(String string) {
-      this.string = string;
+    private final PhraseMatcher.Matches phraseMatches;
+    private final SentenceTracker sentenceTracker;
+    private int sentenceTrackerIndex = 0;
+    private RedactionSpans spans;
+
+    // Initialises the instance by copying the given text into the start of the buffer, along with
+    // the phrases matched in the text and the tracker for the sentence that it starts in
+    private WorkingCopy(
+        CharSequence text,
+        char[] buffer,
+        PhraseMatcher.Matches phraseMatches,
+        SentenceTracker sentenceTracker
+    ) {
+      this.characters = buffer;
+      this.length = text.length();
+      if (text instanceof String) {
+        ((String) text).getChars(0, length, characters, 0);
+      } else if (text instanceof StringBuilder) {
+        ((StringBuilder) text).getChars(0, length, characters, 0);
+      } else if (text instanceof CharBuffer) {
+        ((CharBuffer) text).get(((CharBuffer) text).position(), characters, 0, length);
+      } else {
+        for (int i = 0; i < length; i++) {
+          characters[i] = text.charAt(i);
+        }
+      }
+      this.phraseMatches = phraseMatches;
+      this.sentenceTracker = sentenceTracker;
     }
   }
 }
@@ -0,0 +1,283 @@
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>Redacts UTF-8 encoded text, producing exactly the same bytes as decoding the text, redacting
+ * it with a {@link SimpleTextRedactor} and encoding the result, but without most of the cost of
+ * the round trip.</p>
+ * <p>The text is decoded by hand into a reusable buffer rather than through a {@link
+ * java.nio.charset.CharsetDecoder} and a {@link String}, with a fast path for ASCII. The redactor
+ * then works on the buffer as normal, so phrases, case folding and proper nouns are matched in
+ * exactly the same way. The output isn't encoded at all: redactions only ever replace characters,
+ * so each code point is either copied across as its original bytes or written as the replacement
+ * character's bytes, once per char as {@link SimpleTextRedactor} does. The unchanged bytes between
+ * redactions are copied in bulk.</p>
+ * <p>Text that isn't well-formed UTF-8 is rare, and is redacted through the standard decoder and
+ * encoder instead, so that malformed bytes are replaced in the same way.</p>
+ * <p>This class is thread safe, provided that the redactor is. Each thread reuses the redactor's
+ * {@link ScratchBuffers} for that thread.</p>
+ */
+public class Utf8Redactor {
+
+  // A malformed byte becomes a 3 byte U+FFFD, and no char takes more than 3 bytes, so the
+  // redacted text is never more than 3 times as long as the original
+  private static final int MAX_REDACTED_BYTES_PER_BYTE = 3;
+
+  // The byte that the standard encoder writes in place of an unpaired surrogate
+  private static final byte UNPAIRED_SURROGATE_REPLACEMENT = (byte) '?';
+
+  // The smallest code point that may be encoded with each number of bytes, to reject overlong forms
+  private static final int[] MIN_CODE_POINTS = {0, 0, 0x80, 0x800, 0x10000};
+
+  private final SimpleTextRedactor redactor;
+  private final byte[] replacementBytes;
+
+  /**
+   * Creates a new redactor for UTF-8 encoded text.
+   * @param redactor The redactor that specifies what and how redactions should be found and
+   * replaced.
+   * @throws NullPointerException Thrown if {@code redactor == null}.
+   */
+  public Utf8Redactor(SimpleTextRedactor redactor) throws NullPointerException {
+    this.redactor = Objects.requireNonNull(redactor, "Redactor is null");
+    this.replacementBytes = String
+        .valueOf(redactor.getPlan().getConfiguration().getReplacementCharacter())
+        .getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Gets the most bytes that the redacted text could take up.
+   * @param length The number of bytes in the text.
+   * @return The most bytes that the redacted text could take up.
+   */
+  public static long getMaxRedactedLength(int length) {
+    return (long) length * MAX_REDACTED_BYTES_PER_BYTE;
+  }
+
+  /**
+   * Redacts the text.
+   * @param text The UTF-8 encoded text.
+   * @return The UTF-8 encoded redacted text.
+   * @throws NullPointerException Thrown if {@code text == null}.
+   * @throws IllegalArgumentException Thrown if the text is too long for the redacted text to be
+   * sure to fit in an array.
+   */
+  public byte[] redact(byte[] text) throws NullPointerException, IllegalArgumentException {
+    Objects.requireNonNull(text, "Text is null");
+    long maxRedactedLength = getMaxRedactedLength(text.length);
+    if (maxRedactedLength > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("Text is too long to redact into an array");
+    }
+    ByteBuffer output = ByteBuffer.allocate((int) maxRedactedLength);
+    redact(ByteBuffer.wrap(text), output);
+    return Arrays.copyOf(output.array(), output.position());
+  }
+
+  /**
+   * Redacts the remaining bytes of the text, writing the result to the output. The text's position
+   * is moved to its limit.
+   * @param text The UTF-8 encoded text.
+   * @param output The buffer that the UTF-8 encoded redacted text is written to. This must have at
+   * least {@link #getMaxRedactedLength(int) getMaxRedactedLength(text.remaining())} bytes
+   * remaining.
+   * @throws NullPointerException Thrown if {@code text == null || output == null}.
+   * @throws BufferOverflowException Thrown if the output doesn't have enough space remaining, in
+   * which case neither buffer is changed.
+   */
+  public void redact(ByteBuffer text, ByteBuffer output)
+      throws NullPointerException, BufferOverflowException {
+    Objects.requireNonNull(text, "Text is null");
+    Objects.requireNonNull(output, "Output is null");
+    if (output.remaining() < getMaxRedactedLength(text.remaining())) {
+      throw new BufferOverflowException();
+    }
+
+    ScratchBuffers buffers = redactor.getScratchBuffers();
+    int length = text.remaining();
+
+    // Work on the bytes in an array, copying them out in bulk if the buffer doesn't have one
+    byte[] bytes;
+    int offset;
+    if (text.hasArray()) {
+      bytes = text.array();
+      offset = text.arrayOffset() + text.position();
+    } else {
+      bytes = buffers.getBytes(length);
+      offset = 0;
+      text.get(text.position(), bytes, 0, length);
+    }
+
+    // A code point never takes fewer bytes than chars
+    char[] originalCharacters = buffers.getDecodedCharacters(length);
+    int numberOfCharacters = decode(bytes, offset, offset + length, originalCharacters);
+    if (numberOfCharacters < 0) {
+      redactMalformedText(text, output, buffers);
+      return;
+    }
+
+    CharBuffer originalText = CharBuffer.wrap(originalCharacters, 0, numberOfCharacters);
+    char[] redactedCharacters = redactor.redactToScratchBuffer(originalText, buffers);
+    writeRedactedText(
+        bytes,
+        offset,
+        length,
+        originalCharacters,
+        originalText,
+        redactedCharacters,
+        numberOfCharacters,
+        output
+    );
+    text.position(text.limit());
+  }
+
+  /**
+   * Decodes the bytes into chars.
+   * @param bytes The UTF-8 encoded text.
+   * @param startIndex The index of the first byte to decode.
+   * @param endIndex The index after the last byte to decode.
+   * @param characters The buffer to decode into.
+   * @return The number of chars, or {@code -1} if the bytes aren't well-formed UTF-8.
+   */
+  private static int decode(byte[] bytes, int startIndex, int endIndex, char[] characters) {
+    int length = 0;
+    int index = startIndex;
+    while (index < endIndex) {
+      byte leadByte = bytes[index];
+
+      // Most text is mostly ASCII, which maps straight onto chars
+      if (leadByte >= 0) {
+        characters[length++] = (char) leadByte;
+        index++;
+        continue;
+      }
+
+      int sequenceLength = getSequenceLength(leadByte);
+      if (sequenceLength < 0 || index + sequenceLength > endIndex) {
+        return -1;
+      }
+      int codePoint = leadByte & (0xFF >> (sequenceLength + 1));
+      for (int i = 1; i < sequenceLength; i++) {
+        byte continuationByte = bytes[index + i];
+        if ((continuationByte & 0xC0) != 0x80) {
+          return -1;
+        }
+        codePoint = (codePoint << 6) | (continuationByte & 0x3F);
+      }
+      if (codePoint < MIN_CODE_POINTS[sequenceLength]
+          || codePoint > Character.MAX_CODE_POINT
+          || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)
+      ) {
+        return -1;
+      }
+
+      if (sequenceLength == 4) {
+        characters[length++] = Character.highSurrogate(codePoint);
+        characters[length++] = Character.lowSurrogate(codePoint);
+      } else {
+        characters[length++] = (char) codePoint;
+      }
+      index += sequenceLength;
+    }
+    return length;
+  }
+
+  /**
+   * Gets the number of bytes in the UTF-8 sequence that starts with the given byte.
+   * @param leadByte The first byte of the sequence, which isn't ASCII.
+   * @return The number of bytes, or {@code -1} if the byte can't start a sequence.
+   */
+  private static int getSequenceLength(byte leadByte) {
+    int unsignedLeadByte = leadByte & 0xFF;
+    if (unsignedLeadByte < 0xC2) {
+      // Either a continuation byte, or the start of an overlong 2 byte sequence
+      return -1;
+    }
+    if (unsignedLeadByte < 0xE0) {
+      return 2;
+    }
+    if (unsignedLeadByte < 0xF0) {
+      return 3;
+    }
+    return unsignedLeadByte < 0xF5 ? 4 : -1;
+  }
+
+  /**
+   * Writes out the redacted text. The unchanged text between redactions is copied across as its
+   * original bytes, and every char that has changed is written as the replacement character.
+   * @param bytes The UTF-8 encoded text, which must be well-formed.
+   * @param offset The index of the first byte of the text.
+   * @param length The number of bytes in the text.
+   * @param originalCharacters The decoded text.
+   * @param originalText The decoded text, wrapped so that its encoded length can be measured.
+   * @param redactedCharacters The redacted text.
+   * @param numberOfCharacters The number of chars in the text.
+   * @param output The buffer that the redacted text is written to.
+   */
+  private void writeRedactedText(
+      byte[] bytes,
+      int offset,
+      int length,
+      char[] originalCharacters,
+      CharSequence originalText,
+      char[] redactedCharacters,
+      int numberOfCharacters,
+      ByteBuffer output
+  ) {
+    // The chars and bytes up to which the text has been written
+    int characterIndex = 0;
+    int index = offset;
+
+    while (true) {
+      int redactedIndex = Arrays.mismatch(
+          originalCharacters, characterIndex, numberOfCharacters,
+          redactedCharacters, characterIndex, numberOfCharacters
+      );
+      if (redactedIndex < 0) {
+        break;
+      }
+      redactedIndex += characterIndex;
+      // The surrogate pair's bytes start with the high surrogate
+      if (Character.isLowSurrogate(originalCharacters[redactedIndex])) {
+        redactedIndex--;
+      }
+
+      int unchangedLength =
+          (int) RedactionMetrics.utf8Length(originalText, characterIndex, redactedIndex);
+      output.put(bytes, index, unchangedLength);
+      index += unchangedLength;
+
+      int codePointLength = Character.isHighSurrogate(originalCharacters[redactedIndex]) ? 2 : 1;
+      for (int i = redactedIndex; i < redactedIndex + codePointLength; i++) {
+        // If only half of a surrogate pair was redacted, the other half is left unpaired, which
+        // the standard encoder would replace
+        if (redactedCharacters[i] != originalCharacters[i]) {
+          output.put(replacementBytes);
+        } else {
+          output.put(UNPAIRED_SURROGATE_REPLACEMENT);
+        }
+      }
+      characterIndex = redactedIndex + codePointLength;
+      index += (int) RedactionMetrics.utf8Length(originalText, redactedIndex, characterIndex);
+    }
+    output.put(bytes, index, offset + length - index);
+  }
+
+  /**
+   * Redacts text that isn't well-formed UTF-8 through the standard decoder and encoder, which
+   * replace the malformed bytes.
+   * @param text The text.
+   * @param output The buffer that the redacted text is written to.
+   * @param buffers The scratch buffers for this thread.
+   */
+  private void redactMalformedText(ByteBuffer text, ByteBuffer output, ScratchBuffers buffers) {
+    CharBuffer decodedText = StandardCharsets.UTF_8.decode(text);
+    char[] redactedCharacters = redactor.redactToScratchBuffer(decodedText, buffers);
+    output.put(StandardCharsets.UTF_8.encode(
+        CharBuffer.wrap(redactedCharacters, 0, decodedText.remaining())
+    ));
+  }
+}
@@ -0,0 +1,100 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Helpers for handing work between a producer and a dedicated writer thread through bounded
+ * queues, as {@link ParagraphRedactionPipeline} and {@link AsyncBufferedWriter} do. If the writer
+ * thread stops, a producer waiting on it would otherwise wait forever, so every wait checks that
+ * the writer is still running and rethrows whatever stopped it.
+ */
+final class WriterThreads {
+
+  // How long to wait on a queue before checking that the writer is still running
+  private static final long QUEUE_POLL_INTERVAL_MILLIS = 100L;
+
+  // This class only has static helpers
+  private WriterThreads() {
+  }
+
+  /**
+   * Adds the element to the queue for the writer thread, waiting for space if the queue is full.
+   * @param element The element.
+   * @param queue The queue that the writer thread takes from.
+   * @param writerResult The result of the writer thread.
+   * @param <E> The type of element.
+   * @throws IOException Thrown if the writer thread has stopped, or the wait was interrupted.
+   */
+  static <E> void put(E element, BlockingQueue<E> queue, Future<?> writerResult)
+      throws IOException {
+    try {
+      while (!queue.offer(element, QUEUE_POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+        ensureRunning(writerResult);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the writer");
+    }
+  }
+
+  /**
+   * Takes an element that the writer thread has given back, waiting for one if the queue is empty.
+   * @param queue The queue that the writer thread adds to.
+   * @param writerResult The result of the writer thread.
+   * @param <E> The type of element.
+   * @return The element.
+   * @throws IOException Thrown if the writer thread has stopped, or the wait was interrupted.
+   */
+  static <E> E take(BlockingQueue<E> queue, Future<?> writerResult) throws IOException {
+    try {
+      E element;
+      while ((element = queue.poll(QUEUE_POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+        ensureRunning(writerResult);
+      }
+      return element;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the writer");
+    }
+  }
+
+  // Fails if the writer thread has stopped, rethrowing whatever stopped it
+  private static void ensureRunning(Future<?> writerResult) throws IOException {
+    if (writerResult.isDone()) {
+      getResult(writerResult);
+      throw new IOException("Writer stopped before all of the text was written");
+    }
+  }
+
+  /**
+   * Waits for the result of a task, unwrapping any exception that it threw.
+   * @param task The task.
+   * @param <T> The type of result.
+   * @return The result.
+   * @throws IOException Thrown if the task threw an {@link IOException}, or if the wait was
+   * interrupted.
+   */
+  static <T> T getResult(Future<T> task) throws IOException {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for a task");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException("Task failed", cause);
+    }
+  }
+}
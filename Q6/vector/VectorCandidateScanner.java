@@ -0,0 +1,156 @@
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * <p>A {@link CandidateScanner} that uses the incubating Vector API to check many characters at a
+ * time. On hardware with 256 or 512-bit registers, this is 16 or 32 characters at a time.</p>
+ * <p>When redactions can only start at the start of a word, any character that follows a letter or
+ * digit can be ruled out, which is the vast majority of the characters in prose. Whitespace, and
+ * any range of letters or digits that no redaction can start with, are ruled out too. Only the
+ * blocks of characters that still might contain a candidate are checked individually by a {@link
+ * ScalarCandidateScanner}.</p>
+ * <p>This depends on the {@code jdk.incubator.vector} module, so is kept apart from the rest of the
+ * code. It's compiled and run with {@code --add-modules jdk.incubator.vector}, e.g.:
+ * <blockquote>{@code javac --add-modules jdk.incubator.vector *.java vector/*.java}<br>
+ * {@code java --add-modules jdk.incubator.vector CWK2Q6}</blockquote>
+ * If it isn't available, {@link CandidateScanner#forPlan(RedactionPlan)} falls back to the
+ * {@link ScalarCandidateScanner}.</p>
+ */
+public class VectorCandidateScanner implements CandidateScanner {
+
+  private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+  private final ScalarCandidateScanner scalarScanner;
+
+  // The ranges of ASCII characters that are never word separators, so can't come before a
+  // candidate
+  private final boolean lowercaseLettersAreWordCharacters;
+  private final boolean uppercaseLettersAreWordCharacters;
+  private final boolean digitsAreWordCharacters;
+
+  // The ranges of ASCII characters that never start a redaction
+  private final boolean lowercaseLettersAreNeverCandidates;
+  private final boolean uppercaseLettersAreNeverCandidates;
+  private final boolean digitsAreNeverCandidates;
+  private final boolean whitespaceIsNeverACandidate;
+
+  /**
+   * Creates a new scanner, which checks the characters that it can't rule out with the given
+   * scalar scanner.
+   * @param scalarScanner The scanner for the plan.
+   * @throws IllegalArgumentException Thrown if the plan allows redactions to start in the middle of
+   * a word, none of the ASCII letters or digits are word characters, or redactions can start with
+   * a lowercase letter (e.g. because phrases are matched case-insensitively). Too few characters
+   * can be ruled out in bulk in any of these cases, so the scalar scanner is faster.
+   */
+  public VectorCandidateScanner(ScalarCandidateScanner scalarScanner)
+      throws IllegalArgumentException {
+    this.scalarScanner = scalarScanner;
+    this.lowercaseLettersAreWordCharacters = scalarScanner.areWordCharacters('a', 'z');
+    this.uppercaseLettersAreWordCharacters = scalarScanner.areWordCharacters('A', 'Z');
+    this.digitsAreWordCharacters = scalarScanner.areWordCharacters('0', '9');
+    this.lowercaseLettersAreNeverCandidates = !scalarScanner.couldStartWithAnyOf('a', 'z');
+    this.uppercaseLettersAreNeverCandidates = !scalarScanner.couldStartWithAnyOf('A', 'Z');
+    this.digitsAreNeverCandidates = !scalarScanner.couldStartWithAnyOf('0', '9');
+    this.whitespaceIsNeverACandidate = !scalarScanner.couldStartWithAnyOf(' ', ' ')
+        && !scalarScanner.couldStartWithAnyOf('\t', '\r');
+
+    if (!scalarScanner.isStartOfWordRequired()
+        || !lowercaseLettersAreNeverCandidates
+        || !(lowercaseLettersAreWordCharacters
+            || uppercaseLettersAreWordCharacters
+            || digitsAreWordCharacters)
+    ) {
+      throw new IllegalArgumentException("Characters can't be ruled out in bulk for this plan");
+    }
+  }
+
+  @Override
+  public int findNextCandidate(char[] text, int fromIndex, int toIndex) {
+    int index = fromIndex;
+
+    // Each character is compared with the one before it, so the first character in the text is
+    // checked on its own
+    if (index == 0 && index < toIndex) {
+      if (scalarScanner.isCandidate(text, index)) {
+        return index;
+      }
+      index++;
+    }
+
+    for (int upperBound = toIndex - SPECIES.length(); index <= upperBound;
+        index += SPECIES.length()) {
+      ShortVector previousCharacters = ShortVector.fromCharArray(SPECIES, text, index - 1);
+      ShortVector characters = ShortVector.fromCharArray(SPECIES, text, index);
+      VectorMask<Short> possibleCandidates =
+          isWordCharacter(previousCharacters).or(isNeverCandidate(characters)).not();
+
+      // Check each of the characters that couldn't be ruled out. Testing the whole mask is much
+      // cheaper than extracting the individual lanes from it
+      if (possibleCandidates.anyTrue()) {
+        int candidateIndex =
+            scalarScanner.findNextCandidate(text, index, index + SPECIES.length());
+        if (candidateIndex < index + SPECIES.length()) {
+          return candidateIndex;
+        }
+      }
+    }
+
+    // Check whatever's left over that doesn't fill a vector
+    return scalarScanner.findNextCandidate(text, index, toIndex);
+  }
+
+  /**
+   * Determines which of the characters are definitely word characters.
+   * @param characters The characters.
+   * @return The mask of the characters that are ASCII letters or digits that aren't word
+   * separators.
+   */
+  private VectorMask<Short> isWordCharacter(ShortVector characters) {
+    VectorMask<Short> wordCharacters = SPECIES.maskAll(false);
+    if (lowercaseLettersAreWordCharacters) {
+      wordCharacters = wordCharacters.or(isBetween(characters, 'a', 'z'));
+    }
+    if (uppercaseLettersAreWordCharacters) {
+      wordCharacters = wordCharacters.or(isBetween(characters, 'A', 'Z'));
+    }
+    if (digitsAreWordCharacters) {
+      wordCharacters = wordCharacters.or(isBetween(characters, '0', '9'));
+    }
+    return wordCharacters;
+  }
+
+  /**
+   * Determines which of the characters can never start a redaction.
+   * @param characters The characters.
+   * @return The mask of the characters that are in one of the ASCII ranges that no redaction starts
+   * with.
+   */
+  private VectorMask<Short> isNeverCandidate(ShortVector characters) {
+    VectorMask<Short> neverCandidates = SPECIES.maskAll(false);
+    if (lowercaseLettersAreNeverCandidates) {
+      neverCandidates = neverCandidates.or(isBetween(characters, 'a', 'z'));
+    }
+    if (uppercaseLettersAreNeverCandidates) {
+      neverCandidates = neverCandidates.or(isBetween(characters, 'A', 'Z'));
+    }
+    if (digitsAreNeverCandidates) {
+      neverCandidates = neverCandidates.or(isBetween(characters, '0', '9'));
+    }
+    if (whitespaceIsNeverACandidate) {
+      neverCandidates = neverCandidates
+          .or(characters.compare(VectorOperators.EQ, (short) ' '))
+          .or(isBetween(characters, '\t', '\r'));
+    }
+    return neverCandidates;
+  }
+
+  // Characters above Short.MAX_VALUE are negative as shorts, so are never in an ASCII range
+  private static VectorMask<Short> isBetween(ShortVector characters, char first, char last) {
+    return characters
+        .compare(VectorOperators.GE, (short) first)
+        .and(characters.compare(VectorOperators.LE, (short) last));
+  }
+}